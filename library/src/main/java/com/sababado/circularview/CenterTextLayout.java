@@ -0,0 +1,223 @@
+package com.sababado.circularview;
+
+import android.graphics.Typeface;
+import android.os.AsyncTask;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.view.View;
+
+import java.util.concurrent.FutureTask;
+
+/**
+ * Lays out the text that is drawn in the center of a {@link CircularView}.
+ * <p>
+ * Text is wrapped onto multiple lines to fit the square inscribed in the center circle. It is
+ * optionally shrunk to fit, and ellipsized when it still doesn't. Layouts are computed on a background
+ * thread and cached process wide by text, paint and available space, so text that changes often
+ * (counters for example) only ever gets measured once per distinct value. Until a new layout is ready the
+ * previous one stays on screen.
+ * </p>
+ */
+class CenterTextLayout {
+    private static final int CACHE_SIZE = 64;
+    private static final LruCache<Key, StaticLayout> sLayoutCache = new LruCache<Key, StaticLayout>(CACHE_SIZE);
+    private static final float SQRT_2 = (float) Math.sqrt(2);
+
+    private final View mView;
+    private StaticLayout mLayout;
+    private Key mRequestedKey;
+    private FutureTask<Void> mPendingLayout;
+
+    CenterTextLayout(final View view) {
+        mView = view;
+    }
+
+    /**
+     * Request a layout for the given text. This must be called on the UI thread.
+     *
+     * @param text        Text to lay out.
+     * @param paint       Paint to measure the text with. It is copied, so it can keep changing afterwards.
+     * @param radius      Radius of the circle the text has to fit in.
+     * @param autoSize    True to shrink the text until it fits.
+     * @param minTextSize Smallest text size to shrink to.
+     */
+    void setText(final CharSequence text, final TextPaint paint, final float radius, final boolean autoSize, final float minTextSize) {
+        final int side = (int) (radius * SQRT_2);
+        if (TextUtils.isEmpty(text) || side <= 0) {
+            cancelPendingLayout();
+            mRequestedKey = null;
+            mLayout = null;
+            return;
+        }
+
+        final Key key = new Key(text.toString(), paint.getTextSize(), paint.getTypeface(), paint.getFlags(),
+                side, autoSize, autoSize ? minTextSize : 0f);
+        if (key.equals(mRequestedKey)) {
+            return;
+        }
+        cancelPendingLayout();
+        mRequestedKey = key;
+
+        final StaticLayout cachedLayout = sLayoutCache.get(key);
+        if (cachedLayout != null) {
+            mLayout = cachedLayout;
+            return;
+        }
+
+        final TextPaint paintCopy = new TextPaint(paint);
+        if (mView.isInEditMode()) {
+            // Layout previews don't run background work, so lay out immediately.
+            mLayout = createLayout(key, paintCopy);
+            sLayoutCache.put(key, mLayout);
+            return;
+        }
+        mPendingLayout = new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+                final StaticLayout layout = createLayout(key, paintCopy);
+                sLayoutCache.put(key, layout);
+                mView.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Only publish if this is still the latest request.
+                        if (key == mRequestedKey) {
+                            mLayout = layout;
+                            mPendingLayout = null;
+                            mView.invalidate();
+                        }
+                    }
+                });
+            }
+        }, null);
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(mPendingLayout);
+    }
+
+    private void cancelPendingLayout() {
+        if (mPendingLayout != null) {
+            mPendingLayout.cancel(false);
+            mPendingLayout = null;
+        }
+    }
+
+    /**
+     * Get the current layout. Cached layouts may be shared between views, so set the paint's color before
+     * drawing it.
+     *
+     * @return The layout, or null if there is no text or it hasn't been laid out yet.
+     */
+    StaticLayout getLayout() {
+        return mLayout;
+    }
+
+    /**
+     * Create a layout that fits inside of a square with sides of {@link Key#side}.
+     * This is safe to call from any thread as long as the paint isn't shared.
+     *
+     * @param key   What to lay out.
+     * @param paint Paint to lay out with. Its text size will be changed.
+     * @return A layout that fits in the available space.
+     */
+    static StaticLayout createLayout(final Key key, final TextPaint paint) {
+        final int side = key.side;
+        paint.setTextSize(key.textSize);
+        StaticLayout layout = newLayout(key.text, paint, side);
+        if (key.autoSize && layout.getHeight() > side && key.minTextSize < key.textSize) {
+            // Binary search for the largest text size that fits.
+            float low = key.minTextSize;
+            float high = key.textSize;
+            paint.setTextSize(low);
+            StaticLayout best = newLayout(key.text, paint, side);
+            if (best.getHeight() <= side) {
+                while (high - low > 0.5f) {
+                    final float mid = (low + high) / 2f;
+                    paint.setTextSize(mid);
+                    final StaticLayout candidate = newLayout(key.text, paint, side);
+                    if (candidate.getHeight() <= side) {
+                        low = mid;
+                        best = candidate;
+                    } else {
+                        high = mid;
+                    }
+                }
+            }
+            paint.setTextSize(low);
+            layout = best;
+        }
+        if (layout.getHeight() > side) {
+            layout = ellipsize(layout, key.text, paint, side);
+        }
+        return layout;
+    }
+
+    private static StaticLayout ellipsize(final StaticLayout layout, final String text, final TextPaint paint, final int side) {
+        // Find the last line that still fits, and ellipsize everything from the start of that line.
+        int lastLine = 0;
+        final int lineCount = layout.getLineCount();
+        while (lastLine + 1 < lineCount && layout.getLineBottom(lastLine + 1) <= side) {
+            lastLine++;
+        }
+        final int lastLineStart = layout.getLineStart(lastLine);
+        final String remainder = text.substring(lastLineStart).replace('\n', ' ');
+        final CharSequence ellipsized = TextUtils.ellipsize(remainder, paint, side, TextUtils.TruncateAt.END);
+        return newLayout(text.substring(0, lastLineStart) + ellipsized, paint, side);
+    }
+
+    private static StaticLayout newLayout(final CharSequence text, final TextPaint paint, final int width) {
+        return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_CENTER, 1f, 0f, false);
+    }
+
+    /**
+     * Everything that affects how a layout is measured. Color is applied when drawing, so it isn't part of the key.
+     */
+    static final class Key {
+        final String text;
+        final float textSize;
+        final Typeface typeface;
+        final int paintFlags;
+        final int side;
+        final boolean autoSize;
+        final float minTextSize;
+
+        Key(final String text, final float textSize, final Typeface typeface, final int paintFlags,
+            final int side, final boolean autoSize, final float minTextSize) {
+            this.text = text;
+            this.textSize = textSize;
+            this.typeface = typeface;
+            this.paintFlags = paintFlags;
+            this.side = side;
+            this.autoSize = autoSize;
+            this.minTextSize = minTextSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            if (Float.compare(key.textSize, textSize) != 0) return false;
+            if (paintFlags != key.paintFlags) return false;
+            if (side != key.side) return false;
+            if (autoSize != key.autoSize) return false;
+            if (Float.compare(key.minTextSize, minTextSize) != 0) return false;
+            if (typeface != key.typeface) return false;
+            return text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text.hashCode();
+            result = 31 * result + (textSize != +0.0f ? Float.floatToIntBits(textSize) : 0);
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + paintFlags;
+            result = 31 * result + side;
+            result = 31 * result + (autoSize ? 1 : 0);
+            result = 31 * result + (minTextSize != +0.0f ? Float.floatToIntBits(minTextSize) : 0);
+            return result;
+        }
+    }
+}
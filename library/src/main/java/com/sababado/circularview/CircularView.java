@@ -2,6 +2,7 @@ package com.sababado.circularview;
 
 import android.animation.Animator;
 import android.animation.ObjectAnimator;
+import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
@@ -9,7 +10,13 @@ import android.database.DataSetObserver;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.Trace;
 import android.text.TextPaint;
 import android.text.TextUtils;
 import android.util.AttributeSet;
@@ -19,6 +26,12 @@ import android.view.SoundEffectConstants;
 import android.view.View;
 
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * TODO: document your custom view class.
@@ -28,23 +41,117 @@ public class CircularView extends View {
     private String mText; //TODO add customization for the text (style, color, etc)
 
     private TextPaint mTextPaint;
-    private float mTextWidth;
-    private float mTextHeight;
+    private CenterTextLayout mCenterTextLayout;
+    private boolean mAutoSizeText;
+    private float mMinTextSize;
 
-    private Paint mCirclePaint;
+    /**
+     * Sweep drawn as a line from the center to the markers.
+     */
+    public static final int SWEEP_STYLE_LINE = 0;
+    /**
+     * Sweep drawn as a translucent wedge trailing behind the animated degree.
+     */
+    public static final int SWEEP_STYLE_ARC = 1;
+    /**
+     * Sweep drawn as a line with a trail that fades out behind it.
+     */
+    public static final int SWEEP_STYLE_GRADIENT_TRAIL = 2;
+    private SweepRenderer mSweepRenderer;
     private static final float CIRCLE_WEIGHT_LONG_ORIENTATION = 0.9f;
-    private static final float CIRCLE_TO_MARKER_PADDING = 20f;
-    private final float BASE_MARKER_RADIUS = 40;
+    static final float CIRCLE_TO_MARKER_PADDING = 20f;
+    private static final float BASE_MARKER_RADIUS = 40;
     private int mDefaultMarkerRadius = (int) BASE_MARKER_RADIUS;
     private float mMarkerStartingPoint;
 
     private BaseCircularViewAdapter mAdapter;
 
     private final AdapterDataSetObserver mAdapterDataSetObserver = new AdapterDataSetObserver();
+    /**
+     * Set while a layout for adapter changes is posted and hasn't run yet.
+     */
+    private final AtomicBoolean mAdapterLayoutPending = new AtomicBoolean();
+    /**
+     * Adapter change notifications received since the last posted layout ran.
+     */
+    private final AtomicInteger mPendingAdapterNotifications = new AtomicInteger();
+    private long mMergedAdapterNotifications;
     private OnClickListener mOnCircularViewObjectClickListener;
     private OnHighlightAnimationEndListener mOnHighlightAnimationEndListener;
+    private OnFrameMetricsListener mOnFrameMetricsListener;
+    private CircularViewEventStream mEventStream;
+    private final CircularViewMetrics mMetrics = new CircularViewMetrics();
+    private boolean mCollectMetrics;
+
+    private static final String TRACE_SETUP_MARKER_LIST = "CircularView#setupMarkerList";
+    private static final String TRACE_DRAW = "CircularView#onDraw";
+    private static final String TRACE_SET_HIGHLIGHTED_DEGREE = "CircularView#setHighlightedDegree";
 
     private ArrayList<Marker> mMarkerList;
+    private MarkerLayout mMarkerLayout;
+    private boolean mAsyncLayout;
+    private boolean mUseSharedLayoutCache;
+    private FutureTask<MarkerLayout> mPendingMarkerLayout;
+    private int mMarkerLayoutGeneration;
+    /**
+     * Smallest number of markers a thread binds when binding in parallel.
+     */
+    private static final int PARALLEL_BIND_MIN_CHUNK_SIZE = 32;
+    private int mCarouselSlotCount;
+    private float mCarouselRotation;
+    private boolean mCarouselActive;
+    /**
+     * Adapter position bound to each marker while in carousel mode, indexed by marker.
+     */
+    private int[] mCarouselPositions;
+    private int mCarouselFirstPosition;
+    /**
+     * Angle of the first marker in the current layout, as a {@link FixedAngle}, used to look up sections.
+     */
+    private int mSectionStartAngle;
+    /**
+     * Number of sections in the current layout, 0 if there is no layout.
+     */
+    private int mSectionCount;
+    /**
+     * Set when markers were rebound, so the next highlight pass clears stale highlights on every marker.
+     */
+    private boolean mResetHighlights;
+    private final ArrayList<HighlightCursor> mHighlightCursors = new ArrayList<HighlightCursor>();
+    private float mRangeStartDegree = HIGHLIGHT_NONE;
+    private float mRangeEndDegree = HIGHLIGHT_NONE;
+    /**
+     * Markers in the highlighted range, in clockwise order. Only the first {@link #mRangeSize} entries are valid.
+     */
+    private Marker[] mRangeMarkers = new Marker[0];
+    private Marker[] mRangeMarkersScratch = new Marker[0];
+    private int[] mRangePositions = new int[0];
+    private int mRangeSize;
+    private int mRangeGeneration;
+    private ValueAnimator mRangeAnimator;
+    /**
+     * State restored by {@link #onRestoreInstanceState(Parcelable)} whose geometry hasn't been used yet.
+     */
+    private SavedState mRestoredState;
+    /**
+     * Draws the circle, markers and center text, and keeps the marker draw order.
+     */
+    private CircularViewPainter mPainter;
+    private final Rect mMarkerTransformBounds = new Rect();
+    private final CircularViewPainter.Overlay mSweepOverlay = new CircularViewPainter.Overlay() {
+        @Override
+        public void draw(final Canvas canvas) {
+            if (mIsAnimating) {
+                drawSweep(canvas, mHighlightedDegree);
+            }
+            for (int i = 0, size = mHighlightCursors.size(); i < size; i++) {
+                final HighlightCursor cursor = mHighlightCursors.get(i);
+                if (cursor.isAnimating()) {
+                    drawSweep(canvas, cursor.getDegree());
+                }
+            }
+        }
+    };
     private CircularViewObject mCircle;
     private float mHighlightedDegree;
     private Marker mHighlightedMarker;
@@ -67,6 +174,15 @@ public class CircularView extends View {
     private int mWidth;
     private int mHeight;
 
+    /**
+     * Marker labels are drawn horizontally.
+     */
+    public static final int LABEL_ORIENTATION_UPRIGHT = 0;
+    /**
+     * Marker labels are drawn along the line from the center of the view through the marker.
+     */
+    public static final int LABEL_ORIENTATION_RADIAL = 1;
+
     public static final int TOP = 270;
     public static final int BOTTOM = 90;
     public static final int LEFT = 180;
@@ -110,6 +226,22 @@ public class CircularView extends View {
         mTextPaint.setColor(a.getColor(
                 R.styleable.CircularView_textColor,
                 mTextPaint.getColor()));
+        mAutoSizeText = a.getBoolean(R.styleable.CircularView_autoSizeText, false);
+        mMinTextSize = a.getDimension(
+                R.styleable.CircularView_minTextSize,
+                TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 8f, getResources().getDisplayMetrics()));
+        mCenterTextLayout = new CenterTextLayout(this);
+
+        final TextPaint markerLabelPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        markerLabelPaint.setTextSize(a.getDimension(
+                R.styleable.CircularView_markerLabelTextSize,
+                TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 12f, getResources().getDisplayMetrics())));
+        markerLabelPaint.setColor(a.getColor(
+                R.styleable.CircularView_markerLabelColor,
+                markerLabelPaint.getColor()));
+        mPainter = new CircularViewPainter(new MarkerLabelCache(markerLabelPaint));
+        mPainter.setMarkerLabelOrientation(
+                a.getInt(R.styleable.CircularView_markerLabelOrientation, LABEL_ORIENTATION_UPRIGHT));
 
 
         Drawable circleDrawable = null;
@@ -127,10 +259,9 @@ public class CircularView extends View {
         // Update TextPaint and text measurements from attributes
         invalidateTextPaintAndMeasurements();
 
-        mCirclePaint = new Paint();
-        mCirclePaint.setFlags(Paint.ANTI_ALIAS_FLAG);
-        mCirclePaint.setStyle(Paint.Style.FILL);
-        mCirclePaint.setColor(Color.RED);
+        mSweepRenderer = SweepRenderer.create(
+                a.getInt(R.styleable.CircularView_sweepStyle, SWEEP_STYLE_LINE),
+                a.getColor(R.styleable.CircularView_sweepColor, Color.RED));
 
         mDrawHighlightedMarkerOnTop = a.getBoolean(R.styleable.CircularView_drawHighlightedMarkerOnTop, false);
         mHighlightedMarker = null;
@@ -139,11 +270,18 @@ public class CircularView extends View {
         mMarkerStartingPoint = a.getFloat(R.styleable.CircularView_markerStartingPoint, 0f);
         mAnimateMarkersOnStillHighlight = a.getBoolean(R.styleable.CircularView_animateMarkersOnStillHighlight, false);
         mAnimateMarkersOnHighlightAnimation = false;
+        mAsyncLayout = a.getBoolean(R.styleable.CircularView_asyncLayout, false);
+        mUseSharedLayoutCache = a.getBoolean(R.styleable.CircularView_sharedLayoutCache, false);
+        mCarouselSlotCount = Math.max(0, a.getInt(R.styleable.CircularView_carouselSlotCount, 0));
+        if (a.getBoolean(R.styleable.CircularView_markerAtlas, false)) {
+            mPainter.setMarkerAtlas(new MarkerBitmapAtlas());
+        }
         mIsAnimating = false;
 
         mCircle = new CircularViewObject(getContext(), CIRCLE_TO_MARKER_PADDING, centerBackgroundColor);
         mCircle.setSrc(circleDrawable);
         mCircle.setFitToCircle(a.getBoolean(R.styleable.CircularView_fitToCircle, false));
+        mCircle.setCropToCircle(a.getBoolean(R.styleable.CircularView_cropToCircle, false));
 
         mDefaultMarkerRadius = getResources().getInteger(R.integer.cv_default_marker_radius);
 
@@ -181,16 +319,48 @@ public class CircularView extends View {
         final int shortDimension = Math.min(
                 mWidth = super.getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
                 mHeight = super.getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec));
-        final float actualDimension = Math.round(shortDimension * CIRCLE_WEIGHT_LONG_ORIENTATION);
-        final float circleRadius = (actualDimension - BASE_MARKER_RADIUS * 4f - CIRCLE_TO_MARKER_PADDING * 2f) / 2f;
+        final float actualDimension = getActualDimension(shortDimension);
+        final float circleRadius = getCircleRadius(actualDimension);
         final float circleCenterX = mWidth / 2f;
         final float circleCenterY = mHeight / 2f;
         mCircle.init(circleCenterX, circleCenterY, circleRadius, mAdapterDataSetObserver);
+        invalidateTextPaintAndMeasurements();
 
         setMeasuredDimension(getDefaultSize((int) Math.ceil(actualDimension), widthMeasureSpec),
                 getDefaultSize((int) Math.ceil(actualDimension), heightMeasureSpec));
     }
 
+    /**
+     * Get the size of the square that the circle and its markers are drawn in.
+     *
+     * @param shortDimension The shorter of the width and height available.
+     * @return Size of the square the view draws in.
+     */
+    static float getActualDimension(final int shortDimension) {
+        return Math.round(shortDimension * CIRCLE_WEIGHT_LONG_ORIENTATION);
+    }
+
+    /**
+     * Get the radius of the center circle.
+     *
+     * @param actualDimension Size of the square the view draws in.
+     * @return Radius of the center circle.
+     * @see #getActualDimension(int)
+     */
+    static float getCircleRadius(final float actualDimension) {
+        return (actualDimension - BASE_MARKER_RADIUS * 4f - CIRCLE_TO_MARKER_PADDING * 2f) / 2f;
+    }
+
+    /**
+     * Get the distance from the center of the view to the center of each marker.
+     *
+     * @param circleRadius Radius of the center circle.
+     * @return Distance from the center of the view to the center of each marker.
+     */
+    static float getMarkerRadiusFromCenter(final float circleRadius) {
+        return circleRadius + CIRCLE_TO_MARKER_PADDING + BASE_MARKER_RADIUS;
+    }
+
     /**
      * Utility to return a default size. Uses the supplied size if the
      * MeasureSpec imposed no constraints. Will get larger if allowed
@@ -219,19 +389,6 @@ public class CircularView extends View {
         return result;
     }
 
-    /**
-     * Make sure a degree value is less than or equal to 360 and greater than or equal to 0.
-     *
-     * @param degree Degree to normalize
-     * @return Return a positive degree value
-     */
-    private float normalizeDegree(float degree) {
-        if (degree < 0f) {
-            degree = 360f + degree;
-        }
-        return degree % 360f;
-    }
-
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
@@ -239,125 +396,573 @@ public class CircularView extends View {
     }
 
     private void setupMarkerList() {
+        beginTraceSection(TRACE_SETUP_MARKER_LIST);
+        final long startNanos = mCollectMetrics ? System.nanoTime() : 0L;
+        try {
+            setupMarkerListInternal();
+        } finally {
+            if (mCollectMetrics) {
+                mMetrics.layoutNanos += System.nanoTime() - startNanos;
+            }
+            endTraceSection();
+        }
+    }
+
+    private void setupMarkerListInternal() {
         if (mAdapter != null) {
             // init marker dimens
             final int markerCount = mAdapter.getCount();
             assert (markerCount >= 0);
-            if (mMarkerList == null) {
-                mMarkerList = new ArrayList<Marker>(markerCount);
-            }
-            int markerViewListSize = mMarkerList.size();
-            final float degreeInterval = 360.0f / markerCount;
-            final float radiusFromCenter = mCircle.getRadius() + CIRCLE_TO_MARKER_PADDING + BASE_MARKER_RADIUS;
-            int position = 0;
-            float degree = mMarkerStartingPoint;
-            // loop clockwise
-            for (; position < markerCount; position++) {
-                final boolean positionHasExistingMarkerInList = position < markerViewListSize;
-                final float actualDegree = normalizeDegree(degree);
-                final double rad = Math.toRadians(actualDegree);
-                final float sectionMin = actualDegree - degreeInterval / 2f;
-
-                // get the old marker view if it exists.
-                final Marker newMarker;
-                if (positionHasExistingMarkerInList) {
-                    newMarker = mMarkerList.get(position);
-                } else {
-                    newMarker = new Marker(getContext());
-                    mMarkerList.add(newMarker);
-                }
+            final float radiusFromCenter = getMarkerRadiusFromCenter(mCircle.getRadius());
+            if (mCarouselSlotCount > 0 && markerCount > mCarouselSlotCount) {
+                // Only the visible window of the adapter is bound, and its geometry changes with every rotation.
+                cancelAsyncMarkerLayout();
+                mMarkerLayout = null;
+                applyCarouselLayout(true);
+                postDelayed(setCurrentHighlightedDegree, 5);
+                return;
+            }
+            final float[] weights = readMarkerWeights(markerCount);
+            final SavedState restoredState = mRestoredState;
+            mRestoredState = null;
+            final MarkerLayout markerLayout;
+            if (mMarkerLayout != null && mMarkerLayout.matches(markerCount, mMarkerStartingPoint, radiusFromCenter, weights)) {
+                // The geometry hasn't changed, only rebind.
+                markerLayout = mMarkerLayout;
+            } else if (restoredState != null && restoredState.markerLayout != null
+                    && restoredState.markerLayout.matches(markerCount, mMarkerStartingPoint, radiusFromCenter, weights)) {
+                // Recreated at the same size, the saved geometry is still valid.
+                cancelAsyncMarkerLayout();
+                applyMarkerLayout(restoredState.markerLayout);
+                applyRestoredState(restoredState);
+                return;
+            } else if (mAsyncLayout && !isInEditMode()) {
+                // The current markers stay on screen until the new geometry is ready.
+                requestAsyncMarkerLayout(markerCount, mMarkerStartingPoint, radiusFromCenter, weights);
+                return;
+            } else {
+                markerLayout = computeMarkerLayout(markerCount, mMarkerStartingPoint, radiusFromCenter, weights);
+            }
+            cancelAsyncMarkerLayout();
+            applyMarkerLayout(markerLayout);
+        }
+        // Workaround. Setting the state of a drawable immediately doesn't seem to update correctly.
+        // Delaying the action works.
+        postDelayed(setCurrentHighlightedDegree, 5);
+    }
+
+    /**
+     * Apply the parts of a restored state that depend on the markers, right after its geometry was applied.
+     * The highlight is resolved immediately instead of on a delay, so the first frame is already correct.
+     */
+    private void applyRestoredState(final SavedState restoredState) {
+        final int[] visibilities = restoredState.markerVisibilities;
+        if (visibilities != null && visibilities.length == mMarkerList.size()) {
+            for (int i = 0; i < visibilities.length; i++) {
+                mMarkerList.get(i).restoreVisibility(visibilities[i]);
+            }
+        }
+        updateHighlightedDegree(mHighlightedDegree);
+        resolveHighlightCursors();
+        resolveHighlightedRange();
+    }
+
+    /**
+     * Read the weight of every marker from a {@link WeightedCircularViewAdapter}.
+     *
+     * @param markerCount Number of markers.
+     * @return The weights, or null if the adapter isn't weighted.
+     */
+    private float[] readMarkerWeights(final int markerCount) {
+        if (!(mAdapter instanceof WeightedCircularViewAdapter)) {
+            return null;
+        }
+        final WeightedCircularViewAdapter adapter = (WeightedCircularViewAdapter) mAdapter;
+        final float[] weights = new float[markerCount];
+        for (int position = 0; position < markerCount; position++) {
+            final float weight = adapter.getWeight(position);
+            if (!(weight > 0f) || Float.isInfinite(weight)) {
+                throw new IllegalArgumentException("Weight at position " + position + " must be positive and finite: " + weight);
+            }
+            weights[position] = weight;
+        }
+        return weights;
+    }
 
-                // Initialize all other necessary values
-                newMarker.init(
-                        (float) (radiusFromCenter * Math.cos(rad)) + mCircle.getX(),
-                        (float) (radiusFromCenter * Math.sin(rad)) + mCircle.getY(),
-                        mDefaultMarkerRadius,
-                        normalizeDegree(sectionMin),
-                        normalizeDegree(sectionMin + degreeInterval) - 0.001f,
-                        mAdapterDataSetObserver);
-                newMarker.setShouldAnimateWhenHighlighted(mAnimateMarkersOnStillHighlight);
+    /**
+     * Create, position and bind markers according to a layout.
+     *
+     * @param markerLayout Layout to apply. The adapter's count must match the layout's count.
+     */
+    private void applyMarkerLayout(final MarkerLayout markerLayout) {
+        mMarkerLayout = markerLayout;
+        mCarouselActive = false;
+        mSectionStartAngle = FixedAngle.fromDegrees(markerLayout.startingPoint);
+        mSectionCount = markerLayout.count;
+        mResetHighlights = true;
+        final int markerCount = markerLayout.count;
+        if (mMarkerList == null) {
+            mMarkerList = new ArrayList<Marker>(markerCount);
+        }
+        final int markerViewListSize = mMarkerList.size();
+        final float centerX = mCircle.getX();
+        final float centerY = mCircle.getY();
+        final boolean bindInParallel = mAdapter instanceof ConcurrentCircularViewAdapter
+                && markerCount >= PARALLEL_BIND_MIN_CHUNK_SIZE * 2 && !isInEditMode();
+        for (int position = 0; position < markerCount; position++) {
+            // get the old marker view if it exists.
+            final Marker newMarker;
+            if (position < markerViewListSize) {
+                newMarker = mMarkerList.get(position);
+            } else {
+                newMarker = new Marker(getContext());
+                mMarkerList.add(newMarker);
+            }
 
+            // Initialize all other necessary values
+            newMarker.init(
+                    markerLayout.offsetX[position] + centerX,
+                    markerLayout.offsetY[position] + centerY,
+                    mDefaultMarkerRadius,
+                    markerLayout.degrees[position],
+                    markerLayout.sectionStart[position],
+                    markerLayout.sectionExtent[position],
+                    // Markers bound on other threads are hooked up to the view once binding is done.
+                    bindInParallel ? null : mAdapterDataSetObserver);
+            newMarker.setShouldAnimateWhenHighlighted(mAnimateMarkersOnStillHighlight);
+
+            if (!bindInParallel) {
                 // get the new marker view.
                 mAdapter.setupMarker(position, newMarker);
+                if (mCollectMetrics) {
+                    mMetrics.markersBound++;
+                }
 
                 // Make sure it's drawable has the callback set
                 newMarker.setCallback(this);
+            }
+        }
+        if (bindInParallel) {
+            bindMarkersInParallel(markerCount);
+            for (int position = 0; position < markerCount; position++) {
+                final Marker marker = mMarkerList.get(position);
+                marker.setAdapterDataSetObserver(mAdapterDataSetObserver);
+                marker.setCallback(this);
+            }
+            if (mCollectMetrics) {
+                mMetrics.markersBound += markerCount;
+            }
+        }
+        // Remove extra markers that aren't used in this list anymore.
+        if (markerViewListSize > markerCount) {
+            mMarkerList.subList(markerCount, markerViewListSize).clear();
+        }
+        mMarkerList.trimToSize();
+        mPainter.invalidateDrawOrder();
+    }
 
-                degree += degreeInterval;
+    /**
+     * Bind the first <code>markerCount</code> markers through a {@link ConcurrentCircularViewAdapter}, split into
+     * one chunk per core. The UI thread binds the first chunk and then any chunk the pool hasn't started yet,
+     * and returns once every chunk is bound.
+     */
+    private void bindMarkersInParallel(final int markerCount) {
+        final BaseCircularViewAdapter adapter = mAdapter;
+        final ArrayList<Marker> markers = mMarkerList;
+        final int chunkCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                markerCount / PARALLEL_BIND_MIN_CHUNK_SIZE));
+        final ArrayList<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(chunkCount - 1);
+        for (int chunk = 1; chunk < chunkCount; chunk++) {
+            final int start = (int) ((long) markerCount * chunk / chunkCount);
+            final int end = (int) ((long) markerCount * (chunk + 1) / chunkCount);
+            final FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+                @Override
+                public void run() {
+                    bindMarkers(adapter, markers, start, end);
+                }
+            }, null);
+            tasks.add(task);
+            try {
+                AsyncTask.THREAD_POOL_EXECUTOR.execute(task);
+            } catch (RejectedExecutionException e) {
+                // The pool is saturated. The chunk is run on this thread below.
             }
-            // Remove extra markers that aren't used in this list anymore.
-            markerViewListSize = mMarkerList.size();
-            for (; position < markerViewListSize; position++) {
-                mMarkerList.remove(position--);
-                markerViewListSize--;
+        }
+        bindMarkers(adapter, markers, 0, markerCount / chunkCount);
+
+        boolean interrupted = false;
+        for (final FutureTask<Void> task : tasks) {
+            // Does nothing if a pool thread has already started the task.
+            task.run();
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // Markers must not be touched while other threads are still binding them, so keep waiting.
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Failed to bind markers", e.getCause());
+                }
             }
-            mMarkerList.trimToSize();
-            // Force any effect of highlighting.
         }
-        // Workaround. Setting the state of a drawable immediately doesn't seem to update correctly.
-        // Delaying the action works.
-        postDelayed(setCurrentHighlightedDegree, 5);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void bindMarkers(final BaseCircularViewAdapter adapter, final ArrayList<Marker> markers, final int start, final int end) {
+        for (int position = start; position < end; position++) {
+            adapter.setupMarker(position, markers.get(position));
+        }
+    }
+
+    /**
+     * Position and bind the carousel's slot markers for the current rotation.
+     * <p>
+     * Virtual position <code>v</code> sits at <code>startingPoint + v * interval - rotation</code> and is shown
+     * by marker <code>v mod slotCount</code> with the adapter position <code>v mod count</code>. The window
+     * holds the <code>slotCount</code> virtual positions starting at <code>floor(rotation / interval)</code>.
+     * When the rotation crosses a slot boundary the marker that leaves the window is the one that enters it at the
+     * same spot on the other side, so only that marker is rebound.
+     * </p>
+     *
+     * @param rebindAll True to bind every marker, for example when the adapter has changed.
+     */
+    private void applyCarouselLayout(boolean rebindAll) {
+        final int slotCount = mCarouselSlotCount;
+        final int count = mAdapter.getCount();
+        if (mMarkerList == null) {
+            mMarkerList = new ArrayList<Marker>(slotCount);
+        }
+        final int markerViewListSize = mMarkerList.size();
+        for (int i = markerViewListSize; i < slotCount; i++) {
+            mMarkerList.add(new Marker(getContext()));
+        }
+        if (markerViewListSize > slotCount) {
+            mMarkerList.subList(slotCount, markerViewListSize).clear();
+        }
+        if (!mCarouselActive || mCarouselPositions == null || mCarouselPositions.length != slotCount
+                || markerViewListSize != slotCount) {
+            mCarouselPositions = new int[slotCount];
+            rebindAll = true;
+        }
+        mCarouselActive = true;
+
+        final float radiusFromCenter = getMarkerRadiusFromCenter(mCircle.getRadius());
+        final float centerX = mCircle.getX();
+        final float centerY = mCircle.getY();
+        final float degreeInterval = 360.0f / slotCount;
+        final int firstPosition = (int) Math.floor(mCarouselRotation / degreeInterval);
+        final int firstAngle = FixedAngle.fromDegrees(mMarkerStartingPoint + firstPosition * degreeInterval - mCarouselRotation);
+        mCarouselFirstPosition = firstPosition;
+        mSectionStartAngle = firstAngle;
+        mSectionCount = slotCount;
+        for (int i = 0; i < slotCount; i++) {
+            final int virtualPosition = firstPosition + i;
+            final int slot = floorMod(virtualPosition, slotCount);
+            final int position = floorMod(virtualPosition, count);
+            final Marker marker = mMarkerList.get(slot);
+
+            final float actualDegree = FixedAngle.toDegrees(firstAngle + FixedAngle.fraction(i, slotCount));
+            final double rad = Math.toRadians(actualDegree);
+            marker.init(
+                    (float) (radiusFromCenter * Math.cos(rad)) + centerX,
+                    (float) (radiusFromCenter * Math.sin(rad)) + centerY,
+                    mDefaultMarkerRadius,
+                    actualDegree,
+                    MarkerLayout.sectionStart(firstAngle, i, slotCount),
+                    MarkerLayout.sectionExtent(i, slotCount),
+                    mAdapterDataSetObserver);
+
+            if (rebindAll || mCarouselPositions[slot] != position) {
+                mCarouselPositions[slot] = position;
+                marker.setShouldAnimateWhenHighlighted(mAnimateMarkersOnStillHighlight);
+                mAdapter.setupMarker(position, marker);
+                if (mCollectMetrics) {
+                    mMetrics.markersBound++;
+                }
+                marker.setCallback(this);
+            }
+        }
+        if (rebindAll) {
+            mPainter.invalidateDrawOrder();
+            mResetHighlights = true;
+        }
+    }
+
+    private static int floorMod(final int x, final int y) {
+        final int mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+
+    /**
+     * Find the section of the current layout that contains an angle. There must be at least one section.
+     *
+     * @param angle Angle to look up, as a {@link FixedAngle}.
+     * @return Index of the section, counted clockwise from the first marker.
+     */
+    private int findSection(final int angle) {
+        return mCarouselActive
+                ? MarkerLayout.sectionIndexOf(angle, mSectionStartAngle, mSectionCount)
+                : mMarkerLayout.findSection(angle);
+    }
+
+    /**
+     * Get the start of a section of the current layout.
+     *
+     * @param section Index of the section, counted clockwise from the first marker's section.
+     * @return The start of the section, as a {@link FixedAngle}.
+     */
+    private int getSectionStart(final int section) {
+        return mCarouselActive
+                ? MarkerLayout.sectionStart(mSectionStartAngle, section, mSectionCount)
+                : mMarkerLayout.sectionStart[section];
+    }
+
+    /**
+     * Find the marker whose section contains an angle with a single lookup into the current layout.
+     *
+     * @param angle Angle to look up, as a {@link FixedAngle}.
+     * @return Index of the marker in {@link #mMarkerList}, or -1 if there is none or it is gone.
+     */
+    private int findMarkerIndex(final int angle) {
+        if (mMarkerList == null || mSectionCount == 0 || mMarkerList.size() != mSectionCount) {
+            return -1;
+        }
+        final int section = findSection(angle);
+        final int markerIndex = mCarouselActive ? floorMod(mCarouselFirstPosition + section, mSectionCount) : section;
+        return mMarkerList.get(markerIndex).getVisibility() == View.GONE ? -1 : markerIndex;
+    }
+
+    /**
+     * Get the adapter position a marker is bound to.
+     *
+     * @param markerIndex Index of the marker in {@link #mMarkerList}.
+     * @return The adapter position.
+     */
+    private int getAdapterPosition(final int markerIndex) {
+        return mCarouselActive ? mCarouselPositions[markerIndex] : markerIndex;
+    }
+
+    /**
+     * Compute marker geometry on a background thread and apply it on the UI thread once it is ready.
+     * Any computation that is still pending is canceled.
+     */
+    private void requestAsyncMarkerLayout(final int markerCount, final float startingPoint, final float radiusFromCenter, final float[] weights) {
+        cancelAsyncMarkerLayout();
+        final int generation = mMarkerLayoutGeneration;
+        mPendingMarkerLayout = new FutureTask<MarkerLayout>(new Callable<MarkerLayout>() {
+            @Override
+            public MarkerLayout call() throws Exception {
+                return computeMarkerLayout(markerCount, startingPoint, radiusFromCenter, weights);
+            }
+        }) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                final MarkerLayout markerLayout;
+                try {
+                    markerLayout = get();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (final ExecutionException e) {
+                    // Fail on the UI thread, like a synchronous layout does from onLayout, instead of on a pool thread.
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation != mMarkerLayoutGeneration) {
+                                return;
+                            }
+                            mPendingMarkerLayout = null;
+                            final Throwable cause = e.getCause();
+                            if (cause instanceof RuntimeException) {
+                                throw (RuntimeException) cause;
+                            }
+                            if (cause instanceof Error) {
+                                throw (Error) cause;
+                            }
+                            throw new RuntimeException("Failed to compute the marker layout", cause);
+                        }
+                    });
+                    return;
+                }
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Drop the result if another layout was requested since, or if the adapter changed size.
+                        if (generation != mMarkerLayoutGeneration || mAdapter == null || mAdapter.getCount() != markerCount) {
+                            return;
+                        }
+                        mPendingMarkerLayout = null;
+                        beginTraceSection(TRACE_SETUP_MARKER_LIST);
+                        try {
+                            applyMarkerLayout(markerLayout);
+                        } finally {
+                            endTraceSection();
+                        }
+                        postDelayed(setCurrentHighlightedDegree, 5);
+                        invalidate();
+                    }
+                });
+            }
+        };
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(mPendingMarkerLayout);
+    }
+
+    private MarkerLayout computeMarkerLayout(final int markerCount, final float startingPoint, final float radiusFromCenter, final float[] weights) {
+        // Weighted layouts depend on the data, so they aren't worth sharing.
+        return mUseSharedLayoutCache && weights == null
+                ? MarkerLayout.obtain(markerCount, startingPoint, radiusFromCenter)
+                : MarkerLayout.compute(markerCount, startingPoint, radiusFromCenter, weights);
+    }
+
+    private void cancelAsyncMarkerLayout() {
+        mMarkerLayoutGeneration++;
+        if (mPendingMarkerLayout != null) {
+            mPendingMarkerLayout.cancel(true);
+            mPendingMarkerLayout = null;
+        }
     }
 
     private final Runnable setCurrentHighlightedDegree = new Runnable() {
         @Override
         public void run() {
             setHighlightedDegree(mHighlightedDegree);
+            resolveHighlightCursors();
+            resolveHighlightedRange();
         }
     };
 
     private void invalidateTextPaintAndMeasurements() {
-        mTextWidth = mText == null ? 0 : mTextPaint.measureText(mText);
-        Paint.FontMetrics fontMetrics = mTextPaint.getFontMetrics();
-        mTextHeight = fontMetrics.bottom;
+        // The center circle isn't measured yet while initializing, the text is laid out again once it is.
+        if (mCircle != null) {
+            mCenterTextLayout.setText(mText, mTextPaint, mCircle.getRadius(), mAutoSizeText, mMinTextSize);
+        }
     }
 
-    //TODO always draw the animating markers on top.
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        beginTraceSection(TRACE_DRAW);
+        final long startNanos = mCollectMetrics ? System.nanoTime() : 0L;
+        try {
+            drawInternal(canvas);
+        } finally {
+            endTraceSection();
+        }
+        if (mCollectMetrics) {
+            mMetrics.drawNanos += System.nanoTime() - startNanos;
+            dispatchFrameMetrics();
+        }
+    }
 
-        int contentWidth = mWidth - paddingLeft - paddingRight;
-        int contentHeight = mHeight - paddingTop - paddingBottom;
+    private void drawInternal(Canvas canvas) {
+        // Animating markers, and the highlighted marker if requested, are last in the draw order.
+        mPainter.draw(canvas, mCircle, mMarkerList, getTopMarker(), mSweepRenderer != null ? mSweepOverlay : null,
+                TextUtils.isEmpty(mText) ? null : mCenterTextLayout.getLayout(), mTextPaint.getColor());
+    }
 
-        mCirclePaint.setStyle(Paint.Style.FILL);
-        mCirclePaint.setColor(Color.RED);
-        // Draw CircularViewObject
-        mCircle.draw(canvas);
-        // Draw non-highlighted Markers
-        if (mMarkerList != null && !mMarkerList.isEmpty()) {
-            for (final Marker marker : mMarkerList) {
-                if (!mDrawHighlightedMarkerOnTop || !marker.equals(mHighlightedMarker)) {
-                    marker.draw(canvas);
-                }
-            }
+    private void drawSweep(final Canvas canvas, final float degree) {
+        mSweepRenderer.draw(canvas, degree, mCircle.getX(), mCircle.getY(), getMarkerRadiusFromCenter(mCircle.getRadius()));
+    }
+
+    /**
+     * Get the marker drawn over all others.
+     *
+     * @return The highlighted marker when {@link #isDrawHighlightedMarkerOnTop()} is true, otherwise null.
+     */
+    private Marker getTopMarker() {
+        return mDrawHighlightedMarkerOnTop ? mHighlightedMarker : null;
+    }
+
+    /**
+     * Redraw only the area a marker covered before and after its transform changed.
+     */
+    private void invalidateMarkerTransform(final Marker marker) {
+        final Rect previous = marker.transformBounds;
+        if (previous == null) {
+            // Nothing is known about where the marker was drawn before its first change.
+            marker.transformBounds = new Rect(mPainter.getMarkerTransformBounds(marker, mMarkerTransformBounds));
+            postInvalidateOnAnimation();
+            return;
         }
+        final Rect dirty = mMarkerTransformBounds;
+        dirty.set(previous.left, previous.top, previous.right, previous.bottom);
+        mPainter.getMarkerTransformBounds(marker, previous);
+        dirty.union(previous.left, previous.top, previous.right, previous.bottom);
+        postInvalidateOnAnimation(dirty.left, dirty.top, dirty.right, dirty.bottom);
+    }
 
-        // Draw highlighted marker
-        if (mDrawHighlightedMarkerOnTop && mHighlightedMarker != null) {
-            mHighlightedMarker.draw(canvas);
+    private void dispatchFrameMetrics() {
+        final OnFrameMetricsListener l = mOnFrameMetricsListener;
+        if (l != null) {
+            mMetrics.onFrameEnd();
+            l.onFrameMetrics(this, mMetrics);
         }
+        mMetrics.resetFrame();
+    }
 
-        // Draw line
-        if (mIsAnimating) {
-            final float radiusFromCenter = mCircle.getRadius() + CIRCLE_TO_MARKER_PADDING + BASE_MARKER_RADIUS;
-            final float x = (float) Math.cos(Math.toRadians(mHighlightedDegree)) * radiusFromCenter + mCircle.getX();
-            final float y = (float) Math.sin(Math.toRadians(mHighlightedDegree)) * radiusFromCenter + mCircle.getY();
-            canvas.drawLine(mCircle.getX(), mCircle.getY(), x, y, mCirclePaint);
+    private static void beginTraceSection(final String sectionName) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(sectionName);
         }
+    }
 
+    private static void endTraceSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
 
-        // Draw the text.
-        if (!TextUtils.isEmpty(mText)) {
-            canvas.drawText(mText,
-                    mCircle.getX() - mTextWidth / 2f,
-                    mCircle.getY() - mTextHeight / 2f,
-//                paddingLeft + (contentWidth - mTextWidth) / 2,
-//                paddingTop + (contentHeight + mTextHeight) / 2,
-                    mTextPaint);
+    /**
+     * Count an invalidation in the metrics. Posted invalidations, including the ones marker transforms post on
+     * animation, drawable callbacks and center text layouts all reach one of the invalidate overloads on the UI
+     * thread, so counting there counts every path once.
+     */
+    private void countInvalidation() {
+        if (mCollectMetrics) {
+            mMetrics.invalidationsRequested++;
         }
     }
 
+    @Override
+    public void invalidate() {
+        countInvalidation();
+        super.invalidate();
+    }
+
+    @Override
+    public void invalidate(final int l, final int t, final int r, final int b) {
+        countInvalidation();
+        super.invalidate(l, t, r, b);
+    }
+
+    @Override
+    public void invalidate(final Rect dirty) {
+        countInvalidation();
+        super.invalidate(dirty);
+    }
+
+    /**
+     * Set the listener that will receive counts and timings after every frame that this view draws.
+     * Metrics are only collected while a listener is set. Setting a new listener clears the totals.
+     * <p>
+     * Independently of this listener the view emits {@link android.os.Trace} sections around
+     * marker layout, drawing and highlighting on API 18 and above.
+     * </p>
+     *
+     * @param l Listener to receive metrics, or null to stop collecting them.
+     */
+    public void setOnFrameMetricsListener(final OnFrameMetricsListener l) {
+        mOnFrameMetricsListener = l;
+        mCollectMetrics = l != null;
+        mPainter.setMetrics(mCollectMetrics ? mMetrics : null);
+        mMetrics.reset();
+    }
+
     /**
      * Set the adapter to use on this view.
      *
@@ -381,6 +986,17 @@ public class CircularView extends View {
         return mAdapter;
     }
 
+    /**
+     * Get the number of adapter change notifications that were merged into a layout requested by an earlier
+     * notification, since this view was created. Notifications may arrive on any thread and at most one layout
+     * is requested per frame no matter how many arrive.
+     *
+     * @return Number of adapter notifications that did not cause a layout of their own.
+     */
+    public long getMergedAdapterNotificationCount() {
+        return mMergedAdapterNotifications;
+    }
+
     /**
      * Gets the text for this view.
      * See R.styleable#CircularView_text
@@ -400,6 +1016,7 @@ public class CircularView extends View {
     public void setText(String text) {
         mText = text;
         invalidateTextPaintAndMeasurements();
+        postInvalidate();
     }
 
     /**
@@ -453,6 +1070,61 @@ public class CircularView extends View {
         }
     }
 
+    /**
+     * Check if the text shrinks to fit inside of the center circle.
+     * See R.styleable#CircularView_autoSizeText
+     *
+     * @return True if the text shrinks to fit, false if it is ellipsized at its set size.
+     */
+    public boolean isAutoSizeText() {
+        return mAutoSizeText;
+    }
+
+    /**
+     * Set to true to shrink the text, down to the minimum text size, until it fits inside of the center circle.
+     * Text that still doesn't fit is ellipsized. This is false by default.
+     * See R.styleable#CircularView_autoSizeText
+     *
+     * @param autoSizeText True to shrink the text to fit.
+     * @see #setMinTextSize(int, float)
+     */
+    public void setAutoSizeText(boolean autoSizeText) {
+        if (mAutoSizeText != autoSizeText) {
+            mAutoSizeText = autoSizeText;
+            invalidateTextPaintAndMeasurements();
+            postInvalidate();
+        }
+    }
+
+    /**
+     * Get the smallest size the text will shrink to when {@link #isAutoSizeText()} is true.
+     * See R.styleable#CircularView_minTextSize
+     *
+     * @return The minimum text size in pixels.
+     */
+    public float getMinTextSize() {
+        return mMinTextSize;
+    }
+
+    /**
+     * Set the smallest size the text will shrink to when {@link #isAutoSizeText()} is true.
+     * See {@link TypedValue} for the possible dimension units.
+     * See R.styleable#CircularView_minTextSize
+     *
+     * @param unit The desired dimension unit.
+     * @param size The desired size in the given units.
+     */
+    public void setMinTextSize(int unit, float size) {
+        final Context c = getContext();
+        final Resources r = c == null ? Resources.getSystem() : c.getResources();
+        final float rawSize = TypedValue.applyDimension(unit, size, r.getDisplayMetrics());
+        if (rawSize != mMinTextSize) {
+            mMinTextSize = rawSize;
+            invalidateTextPaintAndMeasurements();
+            postInvalidate();
+        }
+    }
+
     /**
      * Set the paint's color. Note that the color is an int containing alpha
      * as well as r,g,b. This 32bit value is not premultiplied, meaning that
@@ -484,54 +1156,387 @@ public class CircularView extends View {
     }
 
     /**
-     * Get the degree that is currently highlighted.
-     * See R.styleable#CircularView_highlightedDegree
+     * Get the size of the text used for marker labels.
+     * See R.styleable#CircularView_markerLabelTextSize
      *
-     * @return The highlighted degree
+     * @return The marker label text size in pixels.
      */
-    public float getHighlightedDegree() {
-        return mHighlightedDegree;
+    public float getMarkerLabelTextSize() {
+        return mPainter.getMarkerLabelCache().getPaint().getTextSize();
     }
 
     /**
-     * Set the degree that will trigger highlighting a marker. You can also set {@link #HIGHLIGHT_NONE} to not highlight any degree.
-     * See R.styleable#CircularView_highlightedDegree
+     * Set the size of the text used for marker labels to a given unit and value. See {@link
+     * TypedValue} for the possible dimension units.
+     * See R.styleable#CircularView_markerLabelTextSize
      *
-     * @param highlightedDegree Value in degrees.
+     * @param unit The desired dimension unit.
+     * @param size The desired size in the given units.
+     * @see Marker#setLabel(String)
      */
-    public void setHighlightedDegree(final float highlightedDegree) {
-        this.mHighlightedDegree = highlightedDegree;
+    public void setMarkerLabelTextSize(int unit, float size) {
+        final Context c = getContext();
+        final Resources r = c == null ? Resources.getSystem() : c.getResources();
+        final float rawSize = TypedValue.applyDimension(unit, size, r.getDisplayMetrics());
+        final TextPaint paint = mPainter.getMarkerLabelCache().getPaint();
+        if (rawSize != paint.getTextSize()) {
+            paint.setTextSize(rawSize);
+            mPainter.getMarkerLabelCache().onPaintChanged();
+            postInvalidate();
+        }
+    }
 
-        mHighlightedMarker = null;
-        mHighlightedMarkerPosition = -1;
-        // Loop through all markers to see if any of them are highlighted.
-        if (mMarkerList != null) {
-            final int size = mMarkerList.size();
-            for (int i = 0; i < size; i++) {
-                final Marker marker = mMarkerList.get(i);
-                // Only check the marker if the visibility is not "gone"
-                if (marker.getVisibility() != View.GONE) {
-                    final boolean markerIsHighlighted = mHighlightedDegree != HIGHLIGHT_NONE && marker.hasInSection(mHighlightedDegree % 360);
-                    marker.setHighlighted(markerIsHighlighted);
-                    if (markerIsHighlighted) {
-                        // Marker is highlighted!
-                        mHighlightedMarker = marker;
-                        mHighlightedMarkerPosition = i;
-                        final boolean highlightAnimationAndAnimateMarker = mIsAnimating && mAnimateMarkersOnHighlightAnimation;
-                        final boolean stillAndAnimateMarker = !mIsAnimating && mAnimateMarkersOnStillHighlight;
-                        final boolean wantsToAnimateMarker = highlightAnimationAndAnimateMarker || stillAndAnimateMarker;
-                        // Animate only if necessary
-                        if (wantsToAnimateMarker && !marker.isAnimating()) {
-                            marker.animateBounce();
-                        }
-                    }
+    /**
+     * Get the color of marker labels.
+     * See R.styleable#CircularView_markerLabelColor
+     *
+     * @return The marker label color (and alpha).
+     */
+    public int getMarkerLabelColor() {
+        return mPainter.getMarkerLabelCache().getPaint().getColor();
+    }
+
+    /**
+     * Set the color of marker labels.
+     * See R.styleable#CircularView_markerLabelColor
+     *
+     * @param color The new color (including alpha) to set for marker labels.
+     * @see Marker#setLabel(String)
+     */
+    public void setMarkerLabelColor(int color) {
+        final TextPaint paint = mPainter.getMarkerLabelCache().getPaint();
+        if (paint.getColor() != color) {
+            paint.setColor(color);
+            postInvalidate();
+        }
+    }
+
+    /**
+     * Get the orientation of marker labels.
+     * See R.styleable#CircularView_markerLabelOrientation
+     *
+     * @return One of {@link #LABEL_ORIENTATION_UPRIGHT} or {@link #LABEL_ORIENTATION_RADIAL}.
+     */
+    public int getMarkerLabelOrientation() {
+        return mPainter.getMarkerLabelOrientation();
+    }
+
+    /**
+     * Set the orientation of marker labels. Labels are upright by default.
+     * See R.styleable#CircularView_markerLabelOrientation
+     *
+     * @param orientation One of {@link #LABEL_ORIENTATION_UPRIGHT} or {@link #LABEL_ORIENTATION_RADIAL}.
+     * @see Marker#setLabel(String)
+     */
+    public void setMarkerLabelOrientation(int orientation) {
+        if (mPainter.getMarkerLabelOrientation() != orientation) {
+            mPainter.setMarkerLabelOrientation(orientation);
+            postInvalidate();
+        }
+    }
+
+    /**
+     * Get the degree that is currently highlighted.
+     * See R.styleable#CircularView_highlightedDegree
+     *
+     * @return The highlighted degree
+     */
+    public float getHighlightedDegree() {
+        return mHighlightedDegree;
+    }
+
+    /**
+     * Set the degree that will trigger highlighting a marker. You can also set {@link #HIGHLIGHT_NONE} to not highlight any degree.
+     * See R.styleable#CircularView_highlightedDegree
+     *
+     * @param highlightedDegree Value in degrees.
+     */
+    public void setHighlightedDegree(final float highlightedDegree) {
+        beginTraceSection(TRACE_SET_HIGHLIGHTED_DEGREE);
+        final long startNanos = mCollectMetrics ? System.nanoTime() : 0L;
+        try {
+            updateHighlightedDegree(highlightedDegree);
+        } finally {
+            if (mCollectMetrics) {
+                mMetrics.highlightNanos += System.nanoTime() - startNanos;
+            }
+            endTraceSection();
+        }
+        postInvalidate();
+    }
+
+    private void updateHighlightedDegree(final float highlightedDegree) {
+        this.mHighlightedDegree = highlightedDegree;
+        final Marker previouslyHighlightedMarker = mHighlightedMarker;
+
+        // Look up the highlighted marker instead of testing every marker's section.
+        final int markerIndex = highlightedDegree == HIGHLIGHT_NONE ? -1 : findMarkerIndex(FixedAngle.fromDegrees(highlightedDegree));
+        final Marker marker = markerIndex == -1 ? null : mMarkerList.get(markerIndex);
+        if (mResetHighlights && mMarkerList != null) {
+            // Markers were rebound since the last pass, any of them may still think it is highlighted.
+            mResetHighlights = false;
+            for (int i = 0, size = mMarkerList.size(); i < size; i++) {
+                if (i != markerIndex) {
+                    mMarkerList.get(i).setHighlighted(false);
                 }
-                // Continue looping through the rest to reset other markers.
             }
+        } else if (previouslyHighlightedMarker != null && previouslyHighlightedMarker != marker) {
+            previouslyHighlightedMarker.setHighlighted(false);
+        }
+        final int previousPosition = mHighlightedMarkerPosition;
+        mHighlightedMarker = marker;
+        mHighlightedMarkerPosition = markerIndex == -1 ? -1 : getAdapterPosition(markerIndex);
+        if (mEventStream != null && previousPosition != mHighlightedMarkerPosition) {
+            if (previousPosition != -1) {
+                mEventStream.publish(CircularViewEventStream.EVENT_HIGHLIGHT_EXIT, previousPosition, highlightedDegree);
+            }
+            if (mHighlightedMarkerPosition != -1) {
+                mEventStream.publish(CircularViewEventStream.EVENT_HIGHLIGHT_ENTER, mHighlightedMarkerPosition, highlightedDegree);
+            }
+        }
+        if (marker != null) {
+            // Marker is highlighted!
+            marker.setHighlighted(true);
+            final boolean highlightAnimationAndAnimateMarker = mIsAnimating && mAnimateMarkersOnHighlightAnimation;
+            final boolean stillAndAnimateMarker = !mIsAnimating && mAnimateMarkersOnStillHighlight;
+            final boolean wantsToAnimateMarker = highlightAnimationAndAnimateMarker || stillAndAnimateMarker;
+            // Animate only if necessary
+            if (wantsToAnimateMarker && !marker.isAnimating()) {
+                marker.animateBounce();
+            }
+        }
+        if (mDrawHighlightedMarkerOnTop && previouslyHighlightedMarker != mHighlightedMarker) {
+            mPainter.invalidateDrawOrder();
+        }
+    }
+
+    /**
+     * Add a highlight cursor, or get the existing cursor with the same name. A new cursor doesn't point at any
+     * degree until {@link HighlightCursor#setDegree(float)} is called.
+     *
+     * @param name Name of the cursor.
+     * @return The cursor with that name.
+     */
+    public HighlightCursor addHighlightCursor(final String name) {
+        HighlightCursor cursor = getHighlightCursor(name);
+        if (cursor == null) {
+            cursor = new HighlightCursor(this, name);
+            mHighlightCursors.add(cursor);
+        }
+        return cursor;
+    }
+
+    /**
+     * Get a highlight cursor by name.
+     *
+     * @param name Name of the cursor.
+     * @return The cursor, or null if no cursor has that name.
+     */
+    public HighlightCursor getHighlightCursor(final String name) {
+        for (int i = 0, size = mHighlightCursors.size(); i < size; i++) {
+            final HighlightCursor cursor = mHighlightCursors.get(i);
+            if (cursor.getName().equals(name)) {
+                return cursor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove a highlight cursor. Its animation is canceled and the marker under it is no longer highlighted by it.
+     *
+     * @param name Name of the cursor.
+     */
+    public void removeHighlightCursor(final String name) {
+        final HighlightCursor cursor = getHighlightCursor(name);
+        if (cursor != null) {
+            mHighlightCursors.remove(cursor);
+            cursor.cancelAnimation();
+            cursor.setHighlight(null, -1);
+            postInvalidate();
+        }
+    }
+
+    /**
+     * Resolve the marker under a highlight cursor.
+     *
+     * @param cursor Cursor whose degree changed.
+     */
+    void resolveHighlightCursor(final HighlightCursor cursor) {
+        if (!mHighlightCursors.contains(cursor)) {
+            // Removed from this view.
+            return;
+        }
+        final float degree = cursor.getDegree();
+        final int markerIndex = degree == HIGHLIGHT_NONE ? -1 : findMarkerIndex(FixedAngle.fromDegrees(degree));
+        if (markerIndex == -1) {
+            cursor.setHighlight(null, -1);
+        } else {
+            cursor.setHighlight(mMarkerList.get(markerIndex), getAdapterPosition(markerIndex));
         }
         postInvalidate();
     }
 
+    private void resolveHighlightCursors() {
+        for (int i = 0, size = mHighlightCursors.size(); i < size; i++) {
+            resolveHighlightCursor(mHighlightCursors.get(i));
+        }
+    }
+
+    /**
+     * Highlight every marker in the arc going clockwise from the start degree to the end degree, for example
+     * from 45 to 120, or from 300 to 30 across the top. A marker is in the range when its section overlaps the arc.
+     * Markers in the range report {@link Marker#isInHighlightedRange()} and their drawables get the selected state.
+     * Only markers that enter or leave the range are updated, and resolving the range takes time proportional to
+     * the number of markers in it, not the number of markers on the view.
+     * An arc of 360 degrees or more covers every marker.
+     *
+     * @param startDegree Degree the arc starts at.
+     * @param endDegree   Degree the arc ends at.
+     * @see #animateHighlightedRange(float, float, long)
+     * @see #clearHighlightedRange()
+     */
+    public void setHighlightedRange(final float startDegree, final float endDegree) {
+        mRangeStartDegree = startDegree;
+        mRangeEndDegree = endDegree;
+        resolveHighlightedRange();
+        postInvalidate();
+    }
+
+    /**
+     * Stop highlighting a range. Any range animation is canceled.
+     */
+    public void clearHighlightedRange() {
+        if (mRangeAnimator != null) {
+            mRangeAnimator.cancel();
+        }
+        setHighlightedRange(HIGHLIGHT_NONE, HIGHLIGHT_NONE);
+    }
+
+    /**
+     * Get the degree the highlighted range starts at.
+     *
+     * @return The start degree, or {@link #HIGHLIGHT_NONE} if no range is highlighted.
+     */
+    public float getHighlightedRangeStart() {
+        return mRangeStartDegree;
+    }
+
+    /**
+     * Get the degree the highlighted range ends at.
+     *
+     * @return The end degree, or {@link #HIGHLIGHT_NONE} if no range is highlighted.
+     */
+    public float getHighlightedRangeEnd() {
+        return mRangeEndDegree;
+    }
+
+    /**
+     * Get the adapter positions of the markers in the highlighted range.
+     *
+     * @return Positions in clockwise order from the start of the range. Empty if no range is highlighted.
+     */
+    public int[] getHighlightedRangePositions() {
+        final int[] positions = new int[mRangeSize];
+        System.arraycopy(mRangePositions, 0, positions, 0, mRangeSize);
+        return positions;
+    }
+
+    /**
+     * Animate the highlighted range from the current range to a new one. Both ends of the arc move at the same
+     * time, and each frame only updates the markers that enter or leave the range. If no range is highlighted,
+     * the range grows from the new start degree. This cancels any running range animation.
+     *
+     * @param startDegree Degree the arc starts at when the animation ends.
+     * @param endDegree   Degree the arc ends at when the animation ends.
+     * @param duration    Duration the animation should be.
+     */
+    public void animateHighlightedRange(final float startDegree, final float endDegree, final long duration) {
+        if (mRangeAnimator == null) {
+            mRangeAnimator = ValueAnimator.ofFloat(0f, 1f);
+        } else {
+            mRangeAnimator.cancel();
+            mRangeAnimator.removeAllUpdateListeners();
+        }
+        final boolean hasRange = mRangeStartDegree != HIGHLIGHT_NONE;
+        final float fromStart = hasRange ? mRangeStartDegree : startDegree;
+        final float fromEnd = hasRange ? mRangeEndDegree : startDegree;
+        mRangeAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                final float fraction = animation.getAnimatedFraction();
+                setHighlightedRange(fromStart + (startDegree - fromStart) * fraction,
+                        fromEnd + (endDegree - fromEnd) * fraction);
+            }
+        });
+        mRangeAnimator.setDuration(duration);
+        mRangeAnimator.start();
+    }
+
+    /**
+     * Walk the sections covered by the highlighted range, select markers that entered it and deselect markers
+     * that left it.
+     */
+    private void resolveHighlightedRange() {
+        final int generation = ++mRangeGeneration;
+        Marker[] markers = mRangeMarkersScratch;
+        int size = 0;
+        if (mRangeStartDegree != HIGHLIGHT_NONE && mMarkerList != null
+                && mSectionCount > 0 && mMarkerList.size() == mSectionCount) {
+            final int count = mSectionCount;
+            final int startAngle = FixedAngle.fromDegrees(mRangeStartDegree);
+            final int first = findSection(startAngle);
+            final int sectionsInRange;
+            if (mRangeEndDegree - mRangeStartDegree >= 360f) {
+                sectionsInRange = count;
+            } else {
+                final int endAngle = FixedAngle.fromDegrees(mRangeEndDegree);
+                final int last = findSection(endAngle);
+                final int sectionStart = getSectionStart(first);
+                if (last == first && ((endAngle - sectionStart) ^ Integer.MIN_VALUE)
+                        < ((startAngle - sectionStart) ^ Integer.MIN_VALUE)) {
+                    // The arc goes almost all the way around and ends in its first section, before it started.
+                    sectionsInRange = count;
+                } else {
+                    sectionsInRange = floorMod(last - first, count) + 1;
+                }
+            }
+            if (markers.length < sectionsInRange) {
+                markers = new Marker[sectionsInRange];
+            }
+            if (mRangePositions.length < sectionsInRange) {
+                mRangePositions = new int[sectionsInRange];
+            }
+            for (int i = 0; i < sectionsInRange; i++) {
+                int section = first + i;
+                if (section >= count) {
+                    section -= count;
+                }
+                final int markerIndex = mCarouselActive ? floorMod(mCarouselFirstPosition + section, count) : section;
+                final Marker marker = mMarkerList.get(markerIndex);
+                if (marker.getVisibility() == View.GONE) {
+                    continue;
+                }
+                marker.rangeGeneration = generation;
+                marker.setInHighlightedRange(true);
+                markers[size] = marker;
+                mRangePositions[size] = getAdapterPosition(markerIndex);
+                size++;
+            }
+        }
+        // Markers that weren't stamped by this pass have left the range.
+        final Marker[] previousMarkers = mRangeMarkers;
+        for (int i = 0; i < mRangeSize; i++) {
+            if (previousMarkers[i].rangeGeneration != generation) {
+                previousMarkers[i].setInHighlightedRange(false);
+            }
+            previousMarkers[i] = null;
+        }
+        mRangeMarkersScratch = previousMarkers;
+        mRangeMarkers = markers;
+        mRangeSize = size;
+    }
+
     /**
      * Check if a marker should animate when it is highlighted. By default this is false and when it is
      * set to true the marker will constantly be animating.
@@ -579,6 +1584,30 @@ public class CircularView extends View {
         return mHighlightedMarker;
     }
 
+    /**
+     * Get the renderer that draws the sweep while the highlighted degree or a highlight cursor is animating.
+     * See R.styleable#CircularView_sweepStyle
+     *
+     * @return The sweep renderer, or null if no sweep is drawn.
+     */
+    public SweepRenderer getSweepRenderer() {
+        return mSweepRenderer;
+    }
+
+    /**
+     * Set the renderer that draws the sweep while the highlighted degree or a highlight cursor is animating.
+     * Use one of {@link SweepRenderer.Line}, {@link SweepRenderer.Arc} or {@link SweepRenderer.GradientTrail}, or
+     * extend {@link SweepRenderer}. A red line is drawn by default.
+     * See R.styleable#CircularView_sweepStyle
+     * See R.styleable#CircularView_sweepColor
+     *
+     * @param sweepRenderer The sweep renderer, or null to not draw a sweep.
+     */
+    public void setSweepRenderer(final SweepRenderer sweepRenderer) {
+        mSweepRenderer = sweepRenderer;
+        postInvalidate();
+    }
+
     /**
      * Returns the flag the determines if the highlighted marker will draw on top of other markers.
      * See R.styleable#CircularView_drawHighlightedMarkerOnTop
@@ -597,12 +1626,23 @@ public class CircularView extends View {
      * @param drawHighlightedMarkerOnTop the flag that determines if the highlighted marker will draw on top of other markers.
      */
     public void setDrawHighlightedMarkerOnTop(boolean drawHighlightedMarkerOnTop) {
-        this.mDrawHighlightedMarkerOnTop = drawHighlightedMarkerOnTop;
+        if (mDrawHighlightedMarkerOnTop != drawHighlightedMarkerOnTop) {
+            this.mDrawHighlightedMarkerOnTop = drawHighlightedMarkerOnTop;
+            mPainter.invalidateDrawOrder();
+            postInvalidate();
+        }
     }
 
     private boolean mLongClickRegistered = false;
     private Marker mTouchEventMarker = null;
-    private Integer mTouchEventMarkerPos = null;
+    /**
+     * Position of the marker that last handled a touch event. {@link #TOUCH_POSITION_CENTER} when the
+     * center circle handled it and {@link #TOUCH_POSITION_NONE} when nothing is pending.
+     * Kept as a primitive so that touch handling never boxes.
+     */
+    private int mTouchEventMarkerPos = TOUCH_POSITION_NONE;
+    private static final int TOUCH_POSITION_CENTER = -1;
+    private static final int TOUCH_POSITION_NONE = -2;
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
@@ -610,70 +1650,60 @@ public class CircularView extends View {
 
         // check all markers
         if (mMarkerList != null) {
-            // check to see if the highlighted marker is on top. If so, check it before the other markers.
-            boolean highlightedMarkerHandlesEvent = false;
-            if (mHighlightedMarker != null && mDrawHighlightedMarkerOnTop) {
-                final int status = mHighlightedMarker.onTouchEvent(event);
+            // Markers are drawn in draw order, so the last marker drawn is on top. Search for a click
+            // from last to first. This also checks a highlighted marker that is drawn on top first.
+            final int[] drawOrder = mPainter.ensureDrawOrder(mMarkerList, getTopMarker());
+            for (int i = mPainter.getDrawOrderSize() - 1; i > -1; i--) {
+                final int markerIndex = drawOrder[i];
+                final Marker marker = mMarkerList.get(markerIndex);
+                if (mCollectMetrics) {
+                    mMetrics.hitTests++;
+                }
+                final int status = marker.onTouchEvent(event);
                 if (status >= 0) {
                     handled = status != MotionEvent.ACTION_MOVE;
-                    mTouchEventMarker = mHighlightedMarker;
-                    mTouchEventMarkerPos = mHighlightedMarkerPosition;
-                    if (status == MotionEvent.ACTION_UP && mOnCircularViewObjectClickListener != null) {
+                    final int position = getAdapterPosition(markerIndex);
+                    mTouchEventMarker = marker;
+                    mTouchEventMarkerPos = position;
+                    if (status == MotionEvent.ACTION_UP) {
                         if (mLongClickRegistered) {
                             mLongClickRegistered = false;
                         } else {
-                            playSoundEffect(SoundEffectConstants.CLICK);
-                            mOnCircularViewObjectClickListener.onMarkerClick(this, mHighlightedMarker, mHighlightedMarkerPosition, false);
-                        }
-                    }
-                    highlightedMarkerHandlesEvent = true;
-                }
-            }
-
-            if (!highlightedMarkerHandlesEvent) {
-                final int size = mMarkerList.size();
-                // Since markers are drawn first to last, the last marker will be on top, so search
-                // for a click from last to first.
-
-                for (int i = size - 1; i > -1; i--) {
-                    if (mDrawHighlightedMarkerOnTop && i == mHighlightedMarkerPosition) {
-                        // If the marker is to be drawn on top then it will have already been checked
-                        // by this point. Don't check it again.
-                        continue;
-                    }
-                    final Marker marker = mMarkerList.get(i);
-                    final int status = marker.onTouchEvent(event);
-                    if (status >= 0) {
-                        handled = status != MotionEvent.ACTION_MOVE;
-                        mTouchEventMarker = marker;
-                        mTouchEventMarkerPos = i;
-                        if (status == MotionEvent.ACTION_UP && mOnCircularViewObjectClickListener != null) {
-                            if (mLongClickRegistered) {
-                                mLongClickRegistered = false;
-                            } else {
+                            if (mEventStream != null) {
+                                mEventStream.publish(CircularViewEventStream.EVENT_CLICK, position, marker.getDegree());
+                            }
+                            if (mOnCircularViewObjectClickListener != null) {
                                 playSoundEffect(SoundEffectConstants.CLICK);
-                                mOnCircularViewObjectClickListener.onMarkerClick(this, marker, i, false);
+                                mOnCircularViewObjectClickListener.onMarkerClick(this, marker, position, false);
                             }
                         }
-                        break;
                     }
+                    break;
                 }
             }
         }
 
         // check center circle
         if (!handled && mCircle != null) {
+            if (mCollectMetrics) {
+                mMetrics.hitTests++;
+            }
             final int status = mCircle.onTouchEvent(event);
             if (status >= 0) {
                 handled = true;
                 mTouchEventMarker = null;
-                mTouchEventMarkerPos = -1;
-                if (status == MotionEvent.ACTION_UP && mOnCircularViewObjectClickListener != null) {
+                mTouchEventMarkerPos = TOUCH_POSITION_CENTER;
+                if (status == MotionEvent.ACTION_UP) {
                     if (mLongClickRegistered) {
                         mLongClickRegistered = false;
                     } else {
-                        playSoundEffect(SoundEffectConstants.CLICK);
-                        mOnCircularViewObjectClickListener.onClick(this, false);
+                        if (mEventStream != null) {
+                            mEventStream.publish(CircularViewEventStream.EVENT_CLICK, CircularViewEventStream.POSITION_CENTER, 0f);
+                        }
+                        if (mOnCircularViewObjectClickListener != null) {
+                            playSoundEffect(SoundEffectConstants.CLICK);
+                            mOnCircularViewObjectClickListener.onClick(this, false);
+                        }
                     }
                 }
             }
@@ -685,17 +1715,28 @@ public class CircularView extends View {
     private OnLongClickListener mOnLongClickListener = new OnLongClickListener() {
         @Override
         public boolean onLongClick(View v) {
-            if (mOnCircularViewObjectClickListener != null && isLongClickable()) {
+            final OnClickListener l = mOnCircularViewObjectClickListener;
+            if ((l != null || mEventStream != null) && isLongClickable()) {
                 mLongClickRegistered = true;
-                if (mTouchEventMarkerPos == -1) {
-                    playSoundEffect(SoundEffectConstants.CLICK);
-                    mOnCircularViewObjectClickListener.onClick(CircularView.this, true);
-                    mTouchEventMarkerPos = null;
+                if (mTouchEventMarkerPos == TOUCH_POSITION_CENTER) {
+                    if (mEventStream != null) {
+                        mEventStream.publish(CircularViewEventStream.EVENT_LONG_CLICK, CircularViewEventStream.POSITION_CENTER, 0f);
+                    }
+                    if (l != null) {
+                        playSoundEffect(SoundEffectConstants.CLICK);
+                        l.onClick(CircularView.this, true);
+                    }
+                    mTouchEventMarkerPos = TOUCH_POSITION_NONE;
                 } else if (mTouchEventMarker != null) {
-                    playSoundEffect(SoundEffectConstants.CLICK);
-                    mOnCircularViewObjectClickListener.onMarkerClick(CircularView.this, mTouchEventMarker, mTouchEventMarkerPos, true);
+                    if (mEventStream != null) {
+                        mEventStream.publish(CircularViewEventStream.EVENT_LONG_CLICK, mTouchEventMarkerPos, mTouchEventMarker.getDegree());
+                    }
+                    if (l != null) {
+                        playSoundEffect(SoundEffectConstants.CLICK);
+                        l.onMarkerClick(CircularView.this, mTouchEventMarker, mTouchEventMarkerPos, true);
+                    }
                     mTouchEventMarker = null;
-                    mTouchEventMarkerPos = null;
+                    mTouchEventMarkerPos = TOUCH_POSITION_NONE;
                 }
                 return mLongClickRegistered;
             }
@@ -722,6 +1763,27 @@ public class CircularView extends View {
         mOnHighlightAnimationEndListener = l;
     }
 
+    /**
+     * Get the stream this view publishes events to.
+     *
+     * @return The event stream, or null if there is none.
+     */
+    public CircularViewEventStream getEventStream() {
+        return mEventStream;
+    }
+
+    /**
+     * Publish marker and center circle clicks and long clicks, highlight enter and exit, and highlight animation
+     * ends to a stream that can be drained from a background thread. Use this instead of doing slow work, like
+     * analytics or audio, in listeners. Publishing an event is a single allocation free write on the UI thread, and
+     * happens whether or not listeners are set. A stream may be shared by several views on the UI thread.
+     *
+     * @param eventStream Stream to publish to, or null to stop publishing.
+     */
+    public void setEventStream(final CircularViewEventStream eventStream) {
+        mEventStream = eventStream;
+    }
+
     /**
      * Start animating the highlighted degree. This will cancel any current animations of this type.
      * Pass <code>true</code> to {@link #setAnimateMarkerOnStillHighlight(boolean)} in order to see individual
@@ -765,6 +1827,9 @@ public class CircularView extends View {
             mAnimateMarkersOnHighlightAnimation = mIsAnimating = false;
             if (!mAnimationWasCanceled) {
                 setHighlightedDegree(getHighlightedDegree());
+                if (mEventStream != null && mHighlightedMarker != null) {
+                    mEventStream.publish(CircularViewEventStream.EVENT_HIGHLIGHT_ANIMATION_END, mHighlightedMarkerPosition, mHighlightedDegree);
+                }
                 if (mOnHighlightAnimationEndListener != null && mHighlightedMarker != null) {
                     // Highlighted marker will be set by setHighlightedDegree
                     mOnHighlightAnimationEndListener.onHighlightAnimationEnd(CircularView.this, mHighlightedMarker, mHighlightedMarkerPosition);
@@ -805,9 +1870,281 @@ public class CircularView extends View {
         requestLayout();
     }
 
+    /**
+     * Check if marker bitmaps are drawn from a shared atlas.
+     * See R.styleable#CircularView_markerAtlas
+     *
+     * @return True if the marker atlas is enabled.
+     */
+    public boolean isMarkerAtlasEnabled() {
+        return mPainter.getMarkerAtlas() != null;
+    }
+
+    /**
+     * Draw markers whose visual was set with {@link CircularViewObject#setSrc(android.graphics.Bitmap)} from a shared
+     * atlas. Their bitmaps are scaled to the size the markers are drawn at and packed into one bitmap, and markers
+     * that aren't animating are drawn with a single mesh draw instead of one draw per marker. When a marker's bitmap
+     * changes only that marker is repacked.
+     * Markers with a fill color, drawables set any other way, or drawable state changes such as a pressed look
+     * are drawn normally, as are all markers of dials with too many markers to give each a useful cell in a
+     * 2048 pixel atlas. The atlas costs memory for every marker, so it is off by default and best suited to
+     * large dials of images.
+     * See R.styleable#CircularView_markerAtlas
+     *
+     * @param enabled True to draw marker bitmaps from an atlas.
+     */
+    public void setMarkerAtlasEnabled(final boolean enabled) {
+        final MarkerBitmapAtlas atlas = mPainter.getMarkerAtlas();
+        if (enabled != (atlas != null)) {
+            if (enabled) {
+                mPainter.setMarkerAtlas(new MarkerBitmapAtlas());
+            } else {
+                atlas.release();
+                mPainter.setMarkerAtlas(null);
+            }
+            invalidate();
+        }
+    }
+
+    /**
+     * Get the number of markers shown in carousel mode.
+     * See R.styleable#CircularView_carouselSlotCount
+     *
+     * @return The number of carousel slots, or 0 if carousel mode is off.
+     */
+    public int getCarouselSlotCount() {
+        return mCarouselSlotCount;
+    }
+
+    /**
+     * Turn on carousel mode by setting the number of markers to show. When the adapter has more items than slots,
+     * only this many markers are created, spaced evenly around the circle, and they show a window of the adapter
+     * that scrolls with {@link #setCarouselRotation(float)}. Markers that rotate out of the window are rebound
+     * to the positions that rotate in, so memory and bind cost don't grow with the adapter.
+     * Adapters with no more items than slots are laid out normally. Pass 0 to turn carousel mode off, which is
+     * the default.
+     * See R.styleable#CircularView_carouselSlotCount
+     *
+     * @param slotCount Number of markers to show, or 0 to turn carousel mode off.
+     */
+    public void setCarouselSlotCount(final int slotCount) {
+        if (slotCount < 0) {
+            throw new IllegalArgumentException("Slot count must not be negative: " + slotCount);
+        }
+        if (mCarouselSlotCount != slotCount) {
+            mCarouselSlotCount = slotCount;
+            requestLayout();
+        }
+    }
+
+    /**
+     * Get the carousel rotation.
+     *
+     * @return The carousel rotation in degrees.
+     * @see #setCarouselRotation(float)
+     */
+    public float getCarouselRotation() {
+        return mCarouselRotation;
+    }
+
+    /**
+     * Rotate the carousel. Rotating by one slot, <code>360 / slotCount</code> degrees, moves the adapter window
+     * forward by one position. Markers move counter clockwise as the rotation grows and the rotation is not
+     * bounded, so the adapter can be paged through endlessly in both directions. This may be animated with an
+     * {@link ObjectAnimator} using the property name "carouselRotation". It has no effect unless carousel
+     * mode is active.
+     *
+     * @param rotation Rotation in degrees.
+     * @see #setCarouselSlotCount(int)
+     */
+    public void setCarouselRotation(final float rotation) {
+        if (mCarouselRotation == rotation) {
+            return;
+        }
+        mCarouselRotation = rotation;
+        if (mCarouselActive && mAdapter != null) {
+            beginTraceSection(TRACE_SETUP_MARKER_LIST);
+            final long startNanos = mCollectMetrics ? System.nanoTime() : 0L;
+            try {
+                applyCarouselLayout(false);
+            } finally {
+                if (mCollectMetrics) {
+                    mMetrics.layoutNanos += System.nanoTime() - startNanos;
+                }
+                endTraceSection();
+            }
+            // Sections moved under the highlighted degree and the cursors.
+            setHighlightedDegree(mHighlightedDegree);
+            resolveHighlightCursors();
+            resolveHighlightedRange();
+        }
+    }
+
+    /**
+     * Check if marker geometry is computed on a background thread.
+     * See R.styleable#CircularView_asyncLayout
+     *
+     * @return True if marker geometry is computed on a background thread.
+     */
+    public boolean isAsyncLayoutEnabled() {
+        return mAsyncLayout;
+    }
+
+    /**
+     * Set to true to compute marker positions and sections on a background thread. Markers are still bound
+     * through the adapter on the UI thread once the geometry is ready, and the previous markers stay on screen
+     * until then. This is useful for adapters with a very large count. This is false by default.
+     * If computing the geometry fails, for example because of invalid weights, the exception is thrown on the UI
+     * thread, as it is without async layout.
+     * See R.styleable#CircularView_asyncLayout
+     *
+     * @param asyncLayout True to compute marker geometry on a background thread.
+     */
+    public void setAsyncLayoutEnabled(final boolean asyncLayout) {
+        mAsyncLayout = asyncLayout;
+    }
+
+    /**
+     * Check if marker geometry is shared with other views through a process wide cache.
+     * See R.styleable#CircularView_sharedLayoutCache
+     *
+     * @return True if the shared layout cache is used.
+     */
+    public boolean isSharedLayoutCacheEnabled() {
+        return mUseSharedLayoutCache;
+    }
+
+    /**
+     * Set to true to look up marker geometry in a process wide, size bounded cache before computing it.
+     * Views with the same marker count, starting point and size then share a single copy of their marker
+     * positions and sections. This is false by default.
+     * See R.styleable#CircularView_sharedLayoutCache
+     *
+     * @param useSharedLayoutCache True to use the shared layout cache.
+     */
+    public void setSharedLayoutCacheEnabled(final boolean useSharedLayoutCache) {
+        mUseSharedLayoutCache = useSharedLayoutCache;
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.highlightedDegree = mHighlightedDegree;
+        ss.markerStartingPoint = mMarkerStartingPoint;
+        ss.carouselRotation = mCarouselRotation;
+        ss.rangeStartDegree = mRangeStartDegree;
+        ss.rangeEndDegree = mRangeEndDegree;
+        // Carousel geometry follows from the rotation and is cheap to rebuild, so only save regular layouts.
+        if (!mCarouselActive && mMarkerLayout != null && mMarkerList != null && mMarkerList.size() == mMarkerLayout.count) {
+            ss.markerLayout = mMarkerLayout;
+            ss.markerVisibilities = new int[mMarkerList.size()];
+            for (int i = 0; i < ss.markerVisibilities.length; i++) {
+                ss.markerVisibilities[i] = mMarkerList.get(i).getVisibility();
+            }
+        }
+        return ss;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        mHighlightedDegree = ss.highlightedDegree;
+        mMarkerStartingPoint = ss.markerStartingPoint;
+        mCarouselRotation = ss.carouselRotation;
+        mRangeStartDegree = ss.rangeStartDegree;
+        mRangeEndDegree = ss.rangeEndDegree;
+        mRestoredState = ss;
+        requestLayout();
+    }
+
+    /**
+     * Saved view state: highlight, starting point, carousel rotation, range and, outside of carousel mode, the
+     * marker geometry and visibilities. Everything is parceled as primitives. The geometry is reused on restore
+     * if the adapter count, weights and measured size still match.
+     */
+    static class SavedState extends BaseSavedState {
+        float highlightedDegree;
+        float markerStartingPoint;
+        float carouselRotation;
+        float rangeStartDegree;
+        float rangeEndDegree;
+        MarkerLayout markerLayout;
+        int[] markerVisibilities;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            highlightedDegree = in.readFloat();
+            markerStartingPoint = in.readFloat();
+            carouselRotation = in.readFloat();
+            rangeStartDegree = in.readFloat();
+            rangeEndDegree = in.readFloat();
+            if (in.readInt() != 0) {
+                markerLayout = MarkerLayout.createFromParcel(in);
+                markerVisibilities = in.createIntArray();
+            }
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeFloat(highlightedDegree);
+            out.writeFloat(markerStartingPoint);
+            out.writeFloat(carouselRotation);
+            out.writeFloat(rangeStartDegree);
+            out.writeFloat(rangeEndDegree);
+            out.writeInt(markerLayout != null ? 1 : 0);
+            if (markerLayout != null) {
+                markerLayout.writeToParcel(out);
+                out.writeIntArray(markerVisibilities);
+            }
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // Before API 24 a layout posted from a background thread while detached is queued on that thread and never
+        // runs, which would leave the pending flag set for good. Post it again now that there is a UI thread handler.
+        // If the first post does run, whichever runs second finds nothing to do.
+        if (mAdapterLayoutPending.get()) {
+            postOnAnimation(mAdapterLayoutRunnable);
+        }
+    }
+
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        cancelAsyncMarkerLayout();
+        for (int i = 0, size = mHighlightCursors.size(); i < size; i++) {
+            mHighlightCursors.get(i).cancelAnimation();
+        }
+        if (mRangeAnimator != null) {
+            mRangeAnimator.cancel();
+        }
+        if (mPainter.getMarkerAtlas() != null) {
+            mPainter.getMarkerAtlas().release();
+        }
         // Remove all callback references from the center circle
         mCircle.setCallback(null);
         // Remove all callback references from the markers
@@ -823,10 +2160,55 @@ public class CircularView extends View {
         }
     }
 
+    /**
+     * Runs on the UI thread, at most once per frame, to lay out changes reported by the adapter.
+     */
+    private final Runnable mAdapterLayoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // Clear the flag before draining so that a notification arriving in between posts another layout.
+            mAdapterLayoutPending.set(false);
+            final int notifications = mPendingAdapterNotifications.getAndSet(0);
+            if (notifications == 0) {
+                // Already handled by the previous layout.
+                return;
+            }
+            mMergedAdapterNotifications += notifications - 1;
+            if (mCollectMetrics) {
+                mMetrics.adapterLayoutsRequested++;
+                mMetrics.adapterNotificationsMerged += notifications - 1;
+            }
+            requestLayout();
+        }
+    };
+
     class AdapterDataSetObserver extends DataSetObserver {
+        /**
+         * May be called from any thread. Notifications are coalesced into a single layout on the next frame.
+         * While the view is detached the layout waits until it is attached again, see {@link CircularView#onAttachedToWindow()}.
+         */
         @Override
         public void onChanged() {
-            requestLayout();
+            mPendingAdapterNotifications.incrementAndGet();
+            if (mAdapterLayoutPending.compareAndSet(false, true)) {
+                postOnAnimation(mAdapterLayoutRunnable);
+            }
+        }
+
+        /**
+         * Called when a marker starts or stops animating so that it can be moved in the draw order.
+         */
+        void onMarkerAnimationChanged() {
+            mPainter.invalidateDrawOrder();
+            postInvalidate();
+        }
+
+        /**
+         * Called when a marker's translation, scale or alpha changes. Only the marker's area is redrawn, and
+         * nothing about the layout is recomputed.
+         */
+        void onMarkerTransformChanged(final Marker marker) {
+            invalidateMarkerTransform(marker);
         }
 
         /**
@@ -874,4 +2256,19 @@ public class CircularView extends View {
          */
         public void onHighlightAnimationEnd(CircularView view, Marker marker, int position);
     }
+
+    /**
+     * Use this to receive counts and timings for every frame the circular view draws.
+     *
+     * @see #setOnFrameMetricsListener(OnFrameMetricsListener)
+     */
+    public interface OnFrameMetricsListener {
+        /**
+         * Called on the UI thread after a frame has been drawn.
+         *
+         * @param view    The circular view that drew the frame.
+         * @param metrics Metrics for the frame. This instance is reused for every frame.
+         */
+        public void onFrameMetrics(CircularView view, CircularViewMetrics metrics);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package com.sababado.circularview;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded stream of marker clicks and highlight changes that can be consumed off of the UI thread.
+ * <p>
+ * Events are written into a fixed size ring of primitive arrays, so publishing an event costs the UI thread a few
+ * array stores and never allocates or locks, no matter how much work is done with it later. A background thread
+ * calls {@link #drain(EventHandler)} to receive everything published since the last drain, and can fan the events
+ * out to as many consumers as it needs.
+ * </p>
+ * <p>
+ * The stream has one producer and one consumer: events must be published from a single thread, which is the UI
+ * thread for every {@link CircularView} the stream is set on, and only one thread may drain it at a time. When the
+ * consumer falls behind and the ring is full, new events are dropped and counted rather than blocking the UI thread,
+ * see {@link #getDroppedCount()}.
+ * </p>
+ *
+ * @see CircularView#setEventStream(CircularViewEventStream)
+ */
+public final class CircularViewEventStream {
+    /**
+     * A marker or the center circle was clicked.
+     */
+    public static final int EVENT_CLICK = 0;
+    /**
+     * A marker or the center circle was long clicked.
+     */
+    public static final int EVENT_LONG_CLICK = 1;
+    /**
+     * The highlighted degree moved into a marker's section.
+     */
+    public static final int EVENT_HIGHLIGHT_ENTER = 2;
+    /**
+     * The highlighted degree moved out of a marker's section.
+     */
+    public static final int EVENT_HIGHLIGHT_EXIT = 3;
+    /**
+     * The highlight animation ended on a marker. Not published when the animation is canceled.
+     */
+    public static final int EVENT_HIGHLIGHT_ANIMATION_END = 4;
+
+    /**
+     * Position of events about the center circle rather than a marker.
+     */
+    public static final int POSITION_CENTER = -1;
+
+    private final int mMask;
+    private final int[] mTypes;
+    private final int[] mPositions;
+    private final float[] mDegrees;
+    private final long[] mTimes;
+    /**
+     * Index of the next event to drain. Only written by the consumer.
+     */
+    private final AtomicLong mHead = new AtomicLong();
+    /**
+     * Index of the next event to publish. Only written by the producer.
+     */
+    private final AtomicLong mTail = new AtomicLong();
+    /**
+     * Only written by the producer.
+     */
+    private final AtomicLong mDropped = new AtomicLong();
+
+    /**
+     * Create a stream.
+     *
+     * @param capacity Number of events the stream holds before new events are dropped. Rounded up to a power of two.
+     */
+    public CircularViewEventStream(final int capacity) {
+        final int size = roundUpCapacity(capacity);
+        mMask = size - 1;
+        mTypes = new int[size];
+        mPositions = new int[size];
+        mDegrees = new float[size];
+        mTimes = new long[size];
+    }
+
+    /**
+     * Round a capacity up to the power of two the ring is created with.
+     *
+     * @param capacity Requested capacity, between 1 and 2^30.
+     * @return Size of the ring.
+     */
+    static int roundUpCapacity(final int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        return capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Get the number of events the stream holds before new events are dropped.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Get the number of events dropped because the stream was full.
+     *
+     * @return Total number of dropped events.
+     */
+    public long getDroppedCount() {
+        return mDropped.get();
+    }
+
+    /**
+     * Get the number of events waiting to be drained. This is only a snapshot when called while events are being
+     * published or drained.
+     *
+     * @return Number of events in the stream.
+     */
+    public int size() {
+        return (int) (mTail.get() - mHead.get());
+    }
+
+    /**
+     * Add an event. Must only be called from the producer thread.
+     *
+     * @return False if the stream was full and the event was dropped.
+     */
+    boolean publish(final int type, final int position, final float degree) {
+        final long tail = mTail.get();
+        if (tail - mHead.get() > mMask) {
+            mDropped.lazySet(mDropped.get() + 1);
+            return false;
+        }
+        final int index = (int) tail & mMask;
+        mTypes[index] = type;
+        mPositions[index] = position;
+        mDegrees[index] = degree;
+        mTimes[index] = SystemClock.uptimeMillis();
+        // Ordered store: the consumer sees the slot's values before it sees the new tail.
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Pass every event published so far to a handler, oldest first, and remove them from the stream.
+     * Events published while draining are left for the next drain. Only one thread may drain at a time.
+     *
+     * @param handler Handler to receive the events.
+     * @return Number of events drained.
+     */
+    public int drain(final EventHandler handler) {
+        long head = mHead.get();
+        final long tail = mTail.get();
+        final int count = (int) (tail - head);
+        for (; head < tail; head++) {
+            final int index = (int) head & mMask;
+            handler.onEvent(mTypes[index], mPositions[index], mDegrees[index], mTimes[index]);
+            // Release the slot only after it has been read, so the producer can't overwrite it early.
+            mHead.lazySet(head + 1);
+        }
+        return count;
+    }
+
+    /**
+     * Receives events from {@link #drain(EventHandler)}, on the thread that drains the stream.
+     */
+    public interface EventHandler {
+        /**
+         * Called for every drained event.
+         *
+         * @param type     One of {@link #EVENT_CLICK}, {@link #EVENT_LONG_CLICK}, {@link #EVENT_HIGHLIGHT_ENTER},
+         *                 {@link #EVENT_HIGHLIGHT_EXIT} or {@link #EVENT_HIGHLIGHT_ANIMATION_END}.
+         * @param position Adapter position of the marker, or {@link #POSITION_CENTER} for the center circle.
+         * @param degree   Degree of the marker for clicks, or the highlighted degree for highlight events.
+         * @param time     When the event happened, in {@link SystemClock#uptimeMillis()} time.
+         */
+        public void onEvent(int type, int position, float degree, long time);
+    }
+}
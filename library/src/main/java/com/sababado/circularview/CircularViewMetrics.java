@@ -0,0 +1,279 @@
+package com.sababado.circularview;
+
+/**
+ * Counts and timings collected by a {@link CircularView} while an
+ * {@link CircularView.OnFrameMetricsListener} is set.
+ * <p>
+ * The per-frame values cover everything that happened since the previous frame was drawn, up to and
+ * including the frame that was just drawn. The totals cover every frame reported since the listener was set.
+ * </p>
+ * <p>
+ * The same instance is reused for every frame so it must not be held on to outside of
+ * {@link CircularView.OnFrameMetricsListener#onFrameMetrics(CircularView, CircularViewMetrics)}.
+ * Copy the values out if they need to be kept.
+ * </p>
+ */
+public class CircularViewMetrics {
+    int markersDrawn;
+    int markersBound;
+    int invalidationsRequested;
+    int adapterLayoutsRequested;
+    int adapterNotificationsMerged;
+    int hitTests;
+    long layoutNanos;
+    long drawNanos;
+    long highlightNanos;
+
+    private long frameCount;
+    private long totalMarkersDrawn;
+    private long totalMarkersBound;
+    private long totalInvalidationsRequested;
+    private long totalAdapterLayoutsRequested;
+    private long totalAdapterNotificationsMerged;
+    private long totalHitTests;
+    private long totalLayoutNanos;
+    private long totalDrawNanos;
+    private long totalHighlightNanos;
+
+    CircularViewMetrics() {
+    }
+
+    /**
+     * Roll the current frame into the totals. Called after the frame has been drawn.
+     */
+    void onFrameEnd() {
+        frameCount++;
+        totalMarkersDrawn += markersDrawn;
+        totalMarkersBound += markersBound;
+        totalInvalidationsRequested += invalidationsRequested;
+        totalAdapterLayoutsRequested += adapterLayoutsRequested;
+        totalAdapterNotificationsMerged += adapterNotificationsMerged;
+        totalHitTests += hitTests;
+        totalLayoutNanos += layoutNanos;
+        totalDrawNanos += drawNanos;
+        totalHighlightNanos += highlightNanos;
+    }
+
+    /**
+     * Clear the per-frame values so the next frame starts counting from zero.
+     */
+    void resetFrame() {
+        markersDrawn = 0;
+        markersBound = 0;
+        invalidationsRequested = 0;
+        adapterLayoutsRequested = 0;
+        adapterNotificationsMerged = 0;
+        hitTests = 0;
+        layoutNanos = 0;
+        drawNanos = 0;
+        highlightNanos = 0;
+    }
+
+    /**
+     * Clear every value, including the totals.
+     */
+    void reset() {
+        resetFrame();
+        frameCount = 0;
+        totalMarkersDrawn = 0;
+        totalMarkersBound = 0;
+        totalInvalidationsRequested = 0;
+        totalAdapterLayoutsRequested = 0;
+        totalAdapterNotificationsMerged = 0;
+        totalHitTests = 0;
+        totalLayoutNanos = 0;
+        totalDrawNanos = 0;
+        totalHighlightNanos = 0;
+    }
+
+    /**
+     * Get the number of markers that were drawn in this frame.
+     *
+     * @return Number of markers drawn.
+     */
+    public int getMarkersDrawn() {
+        return markersDrawn;
+    }
+
+    /**
+     * Get the number of markers that were bound through {@link BaseCircularViewAdapter#setupMarker(int, Marker)}
+     * for this frame.
+     *
+     * @return Number of markers bound.
+     */
+    public int getMarkersBound() {
+        return markersBound;
+    }
+
+    /**
+     * Get the number of invalidations that were requested for this frame. Every way of invalidating the view is
+     * counted, including marker transforms, drawable callbacks and center text layouts. Invalidations posted from
+     * other threads are counted once they reach the UI thread.
+     *
+     * @return Number of invalidations requested.
+     */
+    public int getInvalidationsRequested() {
+        return invalidationsRequested;
+    }
+
+    /**
+     * Get the number of layouts that were requested by adapter data set changes for this frame.
+     *
+     * @return Number of layouts requested by the adapter.
+     */
+    public int getAdapterLayoutsRequested() {
+        return adapterLayoutsRequested;
+    }
+
+    /**
+     * Get the number of adapter notifications for this frame that were merged into a layout that another
+     * notification had already requested.
+     *
+     * @return Number of merged adapter notifications.
+     */
+    public int getAdapterNotificationsMerged() {
+        return adapterNotificationsMerged;
+    }
+
+    /**
+     * Get the number of objects that were hit tested against touch events for this frame.
+     *
+     * @return Number of hit tests performed.
+     */
+    public int getHitTests() {
+        return hitTests;
+    }
+
+    /**
+     * Get the time spent laying out and binding markers for this frame.
+     *
+     * @return Layout time in nanoseconds.
+     */
+    public long getLayoutNanos() {
+        return layoutNanos;
+    }
+
+    /**
+     * Get the time spent drawing this frame.
+     *
+     * @return Draw time in nanoseconds.
+     */
+    public long getDrawNanos() {
+        return drawNanos;
+    }
+
+    /**
+     * Get the time spent resolving the highlighted marker for this frame.
+     *
+     * @return Highlight time in nanoseconds.
+     */
+    public long getHighlightNanos() {
+        return highlightNanos;
+    }
+
+    /**
+     * Get the number of frames reported since the listener was set.
+     *
+     * @return Number of frames.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Get the number of markers drawn across all reported frames.
+     *
+     * @return Total number of markers drawn.
+     */
+    public long getTotalMarkersDrawn() {
+        return totalMarkersDrawn;
+    }
+
+    /**
+     * Get the number of markers bound across all reported frames.
+     *
+     * @return Total number of markers bound.
+     */
+    public long getTotalMarkersBound() {
+        return totalMarkersBound;
+    }
+
+    /**
+     * Get the number of invalidations requested across all reported frames.
+     *
+     * @return Total number of invalidations requested.
+     */
+    public long getTotalInvalidationsRequested() {
+        return totalInvalidationsRequested;
+    }
+
+    /**
+     * Get the number of layouts requested by the adapter across all reported frames.
+     *
+     * @return Total number of layouts requested by the adapter.
+     */
+    public long getTotalAdapterLayoutsRequested() {
+        return totalAdapterLayoutsRequested;
+    }
+
+    /**
+     * Get the number of merged adapter notifications across all reported frames.
+     *
+     * @return Total number of merged adapter notifications.
+     */
+    public long getTotalAdapterNotificationsMerged() {
+        return totalAdapterNotificationsMerged;
+    }
+
+    /**
+     * Get the number of hit tests performed across all reported frames.
+     *
+     * @return Total number of hit tests.
+     */
+    public long getTotalHitTests() {
+        return totalHitTests;
+    }
+
+    /**
+     * Get the time spent laying out and binding markers across all reported frames.
+     *
+     * @return Total layout time in nanoseconds.
+     */
+    public long getTotalLayoutNanos() {
+        return totalLayoutNanos;
+    }
+
+    /**
+     * Get the time spent drawing across all reported frames.
+     *
+     * @return Total draw time in nanoseconds.
+     */
+    public long getTotalDrawNanos() {
+        return totalDrawNanos;
+    }
+
+    /**
+     * Get the time spent resolving the highlighted marker across all reported frames.
+     *
+     * @return Total highlight time in nanoseconds.
+     */
+    public long getTotalHighlightNanos() {
+        return totalHighlightNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CircularViewMetrics{" +
+                "markersDrawn=" + markersDrawn +
+                ", markersBound=" + markersBound +
+                ", invalidationsRequested=" + invalidationsRequested +
+                ", adapterLayoutsRequested=" + adapterLayoutsRequested +
+                ", adapterNotificationsMerged=" + adapterNotificationsMerged +
+                ", hitTests=" + hitTests +
+                ", layoutNanos=" + layoutNanos +
+                ", drawNanos=" + drawNanos +
+                ", highlightNanos=" + highlightNanos +
+                ", frameCount=" + frameCount +
+                '}';
+    }
+}
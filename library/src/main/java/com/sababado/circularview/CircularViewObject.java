@@ -1,9 +1,14 @@
 package com.sababado.circularview;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Shader;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.util.StateSet;
@@ -57,41 +62,65 @@ public class CircularViewObject {
     private static final AtomicInteger sAtomicIdCounter = new AtomicInteger(0);
     private final int id;
     protected float radius;
-    protected float radiusPadding;
     protected float x;
     protected float y;
-    private final Paint paint;
-    private final Context context;
+    private MarkerStyle style;
+    /**
+     * Resources are shared by the whole application, so unlike a Context holding on to them can't leak an Activity.
+     */
+    private final Resources resources;
     private Drawable drawable;
+    /**
+     * Bitmap given to {@link #setSrc(Bitmap)}, or null if the drawable came from somewhere else.
+     */
+    private Bitmap srcBitmap;
+    /**
+     * Incremented every time the source changes, so that copies of it, like a cell in a
+     * {@link MarkerBitmapAtlas}, can tell when they are stale.
+     */
+    private int srcGeneration;
+    /**
+     * Bounds of the drawable, valid as long as the position, radius and style they were computed for don't change.
+     */
+    private final Rect drawableBounds = new Rect();
+    private float drawableBoundsX = Float.NaN;
+    private float drawableBoundsY;
+    private float drawableBoundsRadius;
+    private MarkerStyle drawableBoundsStyle;
+    /**
+     * Paint with a shader of the bitmap being cropped to the circle. Created the first time the object is drawn
+     * cropped. The shader's matrix is only recomputed when the circle or the bitmap changes.
+     */
+    private Paint cropPaint;
+    private Bitmap cropBitmap;
+    private Matrix cropMatrix;
+    private float cropX = Float.NaN;
+    private float cropY;
+    private float cropRadius;
     private CircularView.AdapterDataSetObserver mAdapterDataSetObserver;
-    private boolean fitToCircle;
     private int visibility;
 
     /**
      * Use this value to make sure that no color shows.
      */
     public static final int NO_COLOR = -1;
+    private static final float SQRT_2 = (float) Math.sqrt(2);
 
     /**
-     * Create a new CircularViewObject with the current context.
+     * Create a new CircularViewObject with the current context. The context itself is not kept.
      *
      * @param context Current context.
      */
     public CircularViewObject(final Context context) {
-        this.context = context;
+        this.resources = context.getResources();
         id = sAtomicIdCounter.getAndAdd(1);
-        paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setStyle(Paint.Style.FILL);
-        paint.setColor(NO_COLOR);
-        setRadiusPadding(5f);
-        fitToCircle = false;
+        style = MarkerStyle.DEFAULT;
         visibility = View.VISIBLE;
     }
 
     CircularViewObject(final Context context, final float radiusPadding, final int centerBackgroundColor) {
         this(context);
-        setRadiusPadding(radiusPadding);
-        paint.setColor(centerBackgroundColor);
+        style = MarkerStyle.DEFAULT.withRadiusPadding(radiusPadding).withFillColor(centerBackgroundColor);
     }
 
     protected void init(final float x, final float y, final float radius, final CircularView.AdapterDataSetObserver adapterDataSetObserver) {
@@ -103,32 +132,112 @@ public class CircularViewObject {
 
     protected void draw(final Canvas canvas) {
         if (visibility == View.VISIBLE) {
-            if (paint.getColor() != NO_COLOR) {
-                canvas.drawCircle(x, y, radius, paint);
+            final MarkerStyle style = this.style;
+            if (style.getFillColor() != NO_COLOR) {
+                canvas.drawCircle(x, y, radius, style.getPaint());
             }
             if (drawable != null) {
-                float leftOffset = -radius + radiusPadding;
-                float topOffset = -radius + radiusPadding;
-                float rightOffset = radius - radiusPadding;
-                float bottomOffset = radius - radiusPadding;
-                if (fitToCircle) {
-                    final double extraOffset = distanceFromCenter(x + leftOffset, y + topOffset) - radius;
-                    leftOffset += extraOffset;
-                    topOffset += extraOffset;
-                    rightOffset -= extraOffset;
-                    bottomOffset -= extraOffset;
+                final Bitmap bitmap = style.isCropToCircle() ? getCropBitmap() : null;
+                if (bitmap != null) {
+                    drawCropped(canvas, bitmap, style);
+                } else {
+                    updateDrawableBounds();
+                    drawable.setBounds(drawableBounds);
+                    drawable.draw(canvas);
                 }
-                drawable.setBounds(
-                        (int) (x + leftOffset),
-                        (int) (y + topOffset),
-                        (int) (x + rightOffset),
-                        (int) (y + bottomOffset)
-                );
-                drawable.draw(canvas);
             }
         }
     }
 
+    /**
+     * Get the bitmap to crop to the circle.
+     *
+     * @return The bitmap behind the drawable, or null if the drawable isn't a bitmap.
+     */
+    private Bitmap getCropBitmap() {
+        final Bitmap bitmap = srcBitmap != null ? srcBitmap
+                : drawable instanceof BitmapDrawable ? ((BitmapDrawable) drawable).getBitmap() : null;
+        return bitmap == null || bitmap.isRecycled() ? null : bitmap;
+    }
+
+    /**
+     * Draw a bitmap scaled to cover the circle inside of the radius padding, cropped to that circle with one
+     * {@link Canvas#drawCircle(float, float, float, Paint)}.
+     */
+    private void drawCropped(final Canvas canvas, final Bitmap bitmap, final MarkerStyle style) {
+        final float cropRadius = radius - style.getRadiusPadding();
+        if (cropRadius <= 0f) {
+            return;
+        }
+        if (cropPaint == null) {
+            cropPaint = new Paint();
+            cropMatrix = new Matrix();
+        }
+        final int paintFlags = style.getPaintFlags() | Paint.FILTER_BITMAP_FLAG;
+        if (cropPaint.getFlags() != paintFlags) {
+            cropPaint.setFlags(paintFlags);
+        }
+        if (bitmap != cropBitmap) {
+            cropBitmap = bitmap;
+            cropPaint.setShader(new BitmapShader(bitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+            cropX = Float.NaN;
+        }
+        if (x != cropX || y != cropY || cropRadius != this.cropRadius) {
+            cropX = x;
+            cropY = y;
+            this.cropRadius = cropRadius;
+            // Center crop: scale the shorter side to the circle's diameter and center the bitmap on the circle.
+            final float scale = 2f * cropRadius / Math.min(bitmap.getWidth(), bitmap.getHeight());
+            cropMatrix.setScale(scale, scale);
+            cropMatrix.postTranslate(x - bitmap.getWidth() * scale / 2f, y - bitmap.getHeight() * scale / 2f);
+            cropPaint.getShader().setLocalMatrix(cropMatrix);
+        }
+        canvas.drawCircle(x, y, cropRadius, cropPaint);
+    }
+
+    /**
+     * Get the bounds the drawable is drawn in, based on the position, radius and style.
+     *
+     * @param outBounds Rect to put the bounds in.
+     * @return <code>outBounds</code>
+     */
+    Rect getDrawableBounds(final Rect outBounds) {
+        updateDrawableBounds();
+        outBounds.set(drawableBounds);
+        return outBounds;
+    }
+
+    private void updateDrawableBounds() {
+        final MarkerStyle style = this.style;
+        if (x == drawableBoundsX && y == drawableBoundsY && radius == drawableBoundsRadius && style == drawableBoundsStyle) {
+            return;
+        }
+        drawableBoundsX = x;
+        drawableBoundsY = y;
+        drawableBoundsRadius = radius;
+        drawableBoundsStyle = style;
+        float halfSize = radius - style.getRadiusPadding();
+        if (style.isFitToCircle()) {
+            // Shrink the square until its corners, half a diagonal from the center, touch the circle.
+            halfSize -= halfSize * SQRT_2 - radius;
+        }
+        drawableBounds.set(
+                (int) (x - halfSize),
+                (int) (y - halfSize),
+                (int) (x + halfSize),
+                (int) (y + halfSize)
+        );
+    }
+
+    /**
+     * Check if this object draws as nothing but a filled circle.
+     *
+     * @return True if the object is visible, has a fill color and has no drawable.
+     */
+    boolean isSolid() {
+        return visibility == View.VISIBLE && drawable == null && style.getFillColor() != NO_COLOR;
+    }
+
     /**
      * Check to see if a point is in the center circle or not.
      * This simply uses the distance formula to get the distance from the center of the circle
@@ -169,7 +278,7 @@ public class CircularViewObject {
      * @param bitmap Bitmap to display.
      */
     public void setSrc(Bitmap bitmap) {
-        setSrc(new BitmapDrawable(context.getResources(), bitmap));
+        setSrc(new BitmapDrawable(resources, bitmap), bitmap);
     }
 
     /**
@@ -178,8 +287,8 @@ public class CircularViewObject {
      * @param resId Resource id of the drawable to display.
      */
     public void setSrc(final int resId) {
-//        setSrc(BitmapFactory.decodeResource(context.getResources(), resId));
-        setSrc(context.getResources().getDrawable(resId));
+//        setSrc(BitmapFactory.decodeResource(resources, resId));
+        setSrc(resources.getDrawable(resId));
     }
 
     /**
@@ -188,10 +297,29 @@ public class CircularViewObject {
      * @param drawable Drawable to display.
      */
     public void setSrc(final Drawable drawable) {
+        setSrc(drawable, null);
+    }
+
+    private void setSrc(final Drawable drawable, final Bitmap srcBitmap) {
         this.drawable = drawable;
+        this.srcBitmap = srcBitmap;
+        srcGeneration++;
         invalidate();
     }
 
+    /**
+     * Get the bitmap given to {@link #setSrc(Bitmap)}.
+     *
+     * @return The bitmap, or null if the object's visual wasn't set from a bitmap.
+     */
+    Bitmap getSrcBitmap() {
+        return srcBitmap;
+    }
+
+    int getSrcGeneration() {
+        return srcGeneration;
+    }
+
     void setCallback(final View view) {
         if (drawable != null) {
             drawable.setCallback(view);
@@ -311,7 +439,7 @@ public class CircularViewObject {
      * @return The object's visual padding from the radius.
      */
     public float getRadiusPadding() {
-        return radiusPadding;
+        return style.getRadiusPadding();
     }
 
     /**
@@ -320,8 +448,7 @@ public class CircularViewObject {
      * @param radiusPadding The object's visual padding from the radius.
      */
     public void setRadiusPadding(float radiusPadding) {
-        this.radiusPadding = radiusPadding;
-        invalidate();
+        setStyle(style.withRadiusPadding(radiusPadding));
     }
 
     /**
@@ -330,7 +457,7 @@ public class CircularViewObject {
      * @return The center background color attribute value.
      */
     public int getCenterBackgroundColor() {
-        return paint.getColor();
+        return style.getFillColor();
     }
 
     /**
@@ -339,8 +466,29 @@ public class CircularViewObject {
      * @param centerBackgroundColor The color attribute value to use.
      */
     public void setCenterBackgroundColor(int centerBackgroundColor) {
-        paint.setColor(centerBackgroundColor);
-        invalidate();
+        setStyle(style.withFillColor(centerBackgroundColor));
+    }
+
+    /**
+     * Get the style shared by this object and every other object with the same styling.
+     *
+     * @return The object's style.
+     */
+    public MarkerStyle getStyle() {
+        return style;
+    }
+
+    /**
+     * Set the object's style. Styles are shared between objects, so prefer this to setting
+     * the fill color, radius padding and fit to circle flag individually when many objects look the same.
+     *
+     * @param style The style to use. Must not be null.
+     */
+    public void setStyle(final MarkerStyle style) {
+        if (this.style != style) {
+            this.style = style;
+            invalidate();
+        }
     }
 
     CircularView.AdapterDataSetObserver getAdapterDataSetObserver() {
@@ -357,7 +505,7 @@ public class CircularViewObject {
      * @return True if the object's drawable should fit inside the center circle. False if it will not.
      */
     public boolean isFitToCircle() {
-        return fitToCircle;
+        return style.isFitToCircle();
     }
 
     /**
@@ -366,8 +514,28 @@ public class CircularViewObject {
      * @param fitToCircle Flag to determine if this drawable should fit inside the center circle.
      */
     public void setFitToCircle(boolean fitToCircle) {
-        this.fitToCircle = fitToCircle;
-        invalidate();
+        setStyle(style.withFitToCircle(fitToCircle));
+    }
+
+    /**
+     * True if the object's bitmap is cropped to a circle.
+     *
+     * @return True if the object's bitmap is cropped to a circle.
+     */
+    public boolean isCropToCircle() {
+        return style.isCropToCircle();
+    }
+
+    /**
+     * Set to true to draw this object's bitmap cropped to a circle inside of the radius padding, scaled to cover
+     * the whole circle. This is a single anti-aliased draw and much cheaper than clipping. It only applies to
+     * bitmaps, set with {@link #setSrc(Bitmap)} or as a {@link BitmapDrawable}; other drawables are drawn as usual,
+     * and the drawable's state doesn't change how the bitmap is drawn.
+     *
+     * @param cropToCircle Flag to determine if this object's bitmap is cropped to a circle.
+     */
+    public void setCropToCircle(boolean cropToCircle) {
+        setStyle(style.withCropToCircle(cropToCircle));
     }
 
     /**
@@ -379,6 +547,15 @@ public class CircularViewObject {
         return visibility;
     }
 
+    /**
+     * Set the visibility without notifying the view, for restoring saved state.
+     *
+     * @param visibility One of {@link View#VISIBLE}, {@link View#INVISIBLE}, or {@link View#GONE}.
+     */
+    void restoreVisibility(final int visibility) {
+        this.visibility = visibility;
+    }
+
     /**
      * Set the enabled state of this view.
      *
@@ -442,6 +619,10 @@ public class CircularViewObject {
         }
     }
 
+    /**
+     * Objects are equal only to themselves. Every object gets a unique {@link #getId() id} so comparing ids is enough,
+     * and the result doesn't change as the object's properties change.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -449,57 +630,25 @@ public class CircularViewObject {
 
         CircularViewObject object = (CircularViewObject) o;
 
-        if (fitToCircle != object.fitToCircle) return false;
-        if (id != object.id) return false;
-        if (mCombinedState != object.mCombinedState) return false;
-        if (Float.compare(object.radius, radius) != 0) return false;
-        if (Float.compare(object.radiusPadding, radiusPadding) != 0) return false;
-        if (visibility != object.visibility) return false;
-        if (Float.compare(object.x, x) != 0) return false;
-        if (Float.compare(object.y, y) != 0) return false;
-        if (context != null ? !context.equals(object.context) : object.context != null)
-            return false;
-        if (drawable != null ? !drawable.equals(object.drawable) : object.drawable != null)
-            return false;
-        if (mAdapterDataSetObserver != null ? !mAdapterDataSetObserver.equals(object.mAdapterDataSetObserver) : object.mAdapterDataSetObserver != null)
-            return false;
-        if (paint != null ? !paint.equals(object.paint) : object.paint != null) return false;
-
-        return true;
+        return id == object.id;
     }
 
     @Override
     public int hashCode() {
-        int result = mCombinedState;
-        result = 31 * result + id;
-        result = 31 * result + (radius != +0.0f ? Float.floatToIntBits(radius) : 0);
-        result = 31 * result + (radiusPadding != +0.0f ? Float.floatToIntBits(radiusPadding) : 0);
-        result = 31 * result + (x != +0.0f ? Float.floatToIntBits(x) : 0);
-        result = 31 * result + (y != +0.0f ? Float.floatToIntBits(y) : 0);
-        result = 31 * result + (paint != null ? paint.hashCode() : 0);
-        result = 31 * result + (context != null ? context.hashCode() : 0);
-        result = 31 * result + (drawable != null ? drawable.hashCode() : 0);
-        result = 31 * result + (mAdapterDataSetObserver != null ? mAdapterDataSetObserver.hashCode() : 0);
-        result = 31 * result + (fitToCircle ? 1 : 0);
-        result = 31 * result + visibility;
-        return result;
+        return id;
     }
 
     @Override
     public String toString() {
         return "CircularViewObject{" +
-                "mCombinedState=" + mCombinedState +
-                ", id=" + id +
+                "id=" + id +
+                ", mCombinedState=" + mCombinedState +
                 ", radius=" + radius +
-                ", radiusPadding=" + radiusPadding +
                 ", x=" + x +
                 ", y=" + y +
-                ", paint=" + paint +
-                ", context=" + context +
+                ", style=" + style +
                 ", drawable=" + drawable +
-                ", mAdapterDataSetObserver=" + mAdapterDataSetObserver +
-                ", fitToCircle=" + fitToCircle +
                 ", visibility=" + visibility +
                 '}';
     }
-}
\ No newline at end of file
+}
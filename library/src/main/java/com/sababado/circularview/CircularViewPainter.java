@@ -0,0 +1,298 @@
+package com.sababado.circularview;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.text.StaticLayout;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Draws a dial: the center circle, the markers and their labels in draw order, and the center text. Both
+ * {@link CircularView} and {@link CircularViewRenderer} draw through one of these, so a dial looks the same
+ * on screen and in a thumbnail.
+ * <p>
+ * The draw order is kept between frames and only rebuilt after {@link #invalidateDrawOrder()}, so drawing an
+ * unchanged dial doesn't allocate. A painter must only be used by one thread at a time.
+ * </p>
+ */
+final class CircularViewPainter {
+    /**
+     * Smallest run of solid markers worth drawing as a batch.
+     */
+    private static final int MIN_BATCH_SIZE = 2;
+
+    private final MarkerLabelCache mMarkerLabelCache;
+    private int mMarkerLabelOrientation = CircularView.LABEL_ORIENTATION_UPRIGHT;
+    private final SolidMarkerBatch mSolidMarkerBatch = new SolidMarkerBatch();
+    /**
+     * Null unless the marker atlas is enabled.
+     */
+    private MarkerBitmapAtlas mMarkerAtlas;
+    private final Rect mMarkerTransformBounds = new Rect();
+    /**
+     * Null unless metrics are being collected.
+     */
+    private CircularViewMetrics mMetrics;
+
+    private int[] mDrawOrder = new int[0];
+    private int mDrawOrderSize;
+    /**
+     * Number of entries at the start of the draw order that are neither animating nor drawn on top.
+     * Only these are batched, since grouping changes the order markers are drawn in.
+     */
+    private int mDrawOrderBatchableSize;
+    private boolean mDrawOrderDirty = true;
+
+    /**
+     * Draws between the markers and the center text.
+     */
+    interface Overlay {
+        void draw(Canvas canvas);
+    }
+
+    CircularViewPainter(final MarkerLabelCache markerLabelCache) {
+        mMarkerLabelCache = markerLabelCache;
+    }
+
+    MarkerLabelCache getMarkerLabelCache() {
+        return mMarkerLabelCache;
+    }
+
+    int getMarkerLabelOrientation() {
+        return mMarkerLabelOrientation;
+    }
+
+    void setMarkerLabelOrientation(final int orientation) {
+        mMarkerLabelOrientation = orientation;
+    }
+
+    MarkerBitmapAtlas getMarkerAtlas() {
+        return mMarkerAtlas;
+    }
+
+    /**
+     * @param markerAtlas Atlas to draw bitmap markers from, or null to draw them one at a time.
+     */
+    void setMarkerAtlas(final MarkerBitmapAtlas markerAtlas) {
+        mMarkerAtlas = markerAtlas;
+    }
+
+    /**
+     * @param metrics Metrics to count drawn markers in, or null to not count them.
+     */
+    void setMetrics(final CircularViewMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Rebuild the draw order on the next draw. Must be called when markers are added, removed or rebound, when
+     * a marker starts or stops animating and when the marker drawn on top changes.
+     */
+    void invalidateDrawOrder() {
+        mDrawOrderDirty = true;
+    }
+
+    /**
+     * Get the number of valid entries in the array returned by {@link #ensureDrawOrder(ArrayList, Marker)}.
+     *
+     * @return Number of markers in the draw order.
+     */
+    int getDrawOrderSize() {
+        return mDrawOrderSize;
+    }
+
+    /**
+     * Get the order to draw markers in, rebuilding it only if it was invalidated or the number of markers
+     * changed since it was last built.
+     * Markers are drawn in position order, followed by animating markers, followed by the marker on top.
+     *
+     * @param markers   Markers to order, or null if there are none.
+     * @param topMarker Marker to draw over all others, or null.
+     * @return Marker indices in draw order. Only the first {@link #getDrawOrderSize()} entries are valid.
+     */
+    int[] ensureDrawOrder(final ArrayList<Marker> markers, final Marker topMarker) {
+        final int size = markers == null ? 0 : markers.size();
+        if (!mDrawOrderDirty && mDrawOrderSize == size) {
+            return mDrawOrder;
+        }
+        if (mDrawOrder.length < size) {
+            mDrawOrder = new int[size];
+        }
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            final Marker marker = markers.get(i);
+            if (marker != topMarker && !marker.isAnimating()) {
+                mDrawOrder[n++] = i;
+            }
+        }
+        mDrawOrderBatchableSize = n;
+        int topPosition = -1;
+        for (int i = 0; i < size; i++) {
+            final Marker marker = markers.get(i);
+            if (marker == topMarker) {
+                topPosition = i;
+            } else if (marker.isAnimating()) {
+                mDrawOrder[n++] = i;
+            }
+        }
+        if (topPosition != -1) {
+            mDrawOrder[n++] = topPosition;
+        }
+        mDrawOrderSize = n;
+        mDrawOrderDirty = false;
+        return mDrawOrder;
+    }
+
+    /**
+     * Draw a dial.
+     *
+     * @param canvas    Canvas to draw on.
+     * @param circle    Center circle.
+     * @param markers   Markers around the circle, or null if there are none.
+     * @param topMarker Marker to draw over all others, or null.
+     * @param overlay   What to draw over the markers and under the center text, or null.
+     * @param text      Layout of the center text, or null if there is none.
+     * @param textColor Color to draw the center text with.
+     */
+    void draw(final Canvas canvas, final CircularViewObject circle, final ArrayList<Marker> markers,
+              final Marker topMarker, final Overlay overlay, final StaticLayout text, final int textColor) {
+        circle.draw(canvas);
+        if (markers != null && !markers.isEmpty()) {
+            drawMarkers(canvas, markers, topMarker);
+        }
+        if (overlay != null) {
+            overlay.draw(canvas);
+        }
+        if (text != null) {
+            // Cached layouts may be shared between views and renderers, so the color is set for every draw.
+            text.getPaint().setColor(textColor);
+            final int saveCount = canvas.save();
+            canvas.translate(circle.getX() - text.getWidth() / 2f, circle.getY() - text.getHeight() / 2f);
+            text.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    /**
+     * Draw markers in draw order. Consecutive solid color markers are drawn in batches, as are consecutive bitmap
+     * markers when the marker atlas is enabled and has room for every marker. Everything else, including every
+     * animating marker and the marker drawn on top, is drawn one at a time.
+     */
+    private void drawMarkers(final Canvas canvas, final ArrayList<Marker> markers, final Marker topMarker) {
+        final int[] drawOrder = ensureDrawOrder(markers, topMarker);
+        final boolean useAtlas = mMarkerAtlas != null && MarkerBitmapAtlas.canDraw(canvas)
+                && MarkerBitmapAtlas.canHold(markers.size());
+        int i = 0;
+        while (i < mDrawOrderSize) {
+            int end = i;
+            while (end < mDrawOrderBatchableSize && SolidMarkerBatch.canBatch(markers.get(drawOrder[end]))) {
+                end++;
+            }
+            if (end - i >= MIN_BATCH_SIZE) {
+                mSolidMarkerBatch.draw(canvas, markers, drawOrder, i, end);
+                i = drawBatchDecorations(canvas, markers, drawOrder, i, end);
+                continue;
+            }
+            if (useAtlas) {
+                end = i;
+                while (end < mDrawOrderBatchableSize && MarkerBitmapAtlas.canPack(markers.get(drawOrder[end]))) {
+                    end++;
+                }
+                if (end - i >= MIN_BATCH_SIZE) {
+                    mMarkerAtlas.draw(canvas, markers, drawOrder, i, end, markers.size());
+                    i = drawBatchDecorations(canvas, markers, drawOrder, i, end);
+                    continue;
+                }
+            }
+            drawMarker(canvas, markers.get(drawOrder[i]));
+            i++;
+        }
+    }
+
+    /**
+     * Labels go over the whole batch, so they are drawn after it.
+     *
+     * @return <code>end</code>
+     */
+    private int drawBatchDecorations(final Canvas canvas, final ArrayList<Marker> markers, final int[] drawOrder,
+                                     final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            drawMarkerDecorations(canvas, markers.get(drawOrder[i]));
+        }
+        return end;
+    }
+
+    private void drawMarker(final Canvas canvas, final Marker marker) {
+        if (!marker.hasTransform()) {
+            marker.draw(canvas);
+            drawMarkerDecorations(canvas, marker);
+            return;
+        }
+        final int saveCount;
+        final float alpha = marker.getAlpha();
+        if (alpha < 1f) {
+            final Rect bounds = getMarkerTransformBounds(marker, mMarkerTransformBounds);
+            saveCount = canvas.saveLayerAlpha(bounds.left, bounds.top, bounds.right, bounds.bottom,
+                    Math.round(alpha * 255), Canvas.ALL_SAVE_FLAG);
+        } else {
+            saveCount = canvas.save();
+        }
+        canvas.translate(marker.getTranslationX(), marker.getTranslationY());
+        final float scale = marker.getScale();
+        if (scale != 1f) {
+            canvas.scale(scale, scale, marker.getX(), marker.getY());
+        }
+        marker.draw(canvas);
+        drawMarkerDecorations(canvas, marker);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Get the area a marker and its label cover when drawn with its transform.
+     *
+     * @param marker    Marker to measure.
+     * @param outBounds Rect to put the bounds in.
+     * @return <code>outBounds</code>
+     */
+    Rect getMarkerTransformBounds(final Marker marker, final Rect outBounds) {
+        float extent = marker.getRadius();
+        final String label = marker.getLabel();
+        if (label != null) {
+            // Labels can be rotated, so cover half their width in every direction.
+            extent = Math.max(extent, Math.max(mMarkerLabelCache.measure(label) / 2f,
+                    mMarkerLabelCache.getPaint().getTextSize()));
+        }
+        // One extra pixel for anti-aliasing.
+        extent = extent * marker.getScale() + 1f;
+        final float cx = marker.getX() + marker.getTranslationX();
+        final float cy = marker.getY() + marker.getTranslationY();
+        outBounds.set((int) Math.floor(cx - extent), (int) Math.floor(cy - extent),
+                (int) Math.ceil(cx + extent), (int) Math.ceil(cy + extent));
+        return outBounds;
+    }
+
+    /**
+     * Draw what goes over a marker after the marker itself has been drawn.
+     */
+    private void drawMarkerDecorations(final Canvas canvas, final Marker marker) {
+        if (marker.getVisibility() == View.VISIBLE) {
+            final String label = marker.getLabel();
+            if (label != null) {
+                mMarkerLabelCache.draw(canvas, label, marker.getX(), marker.getY(), getMarkerLabelRotation(marker));
+            }
+            if (mMetrics != null) {
+                mMetrics.markersDrawn++;
+            }
+        }
+    }
+
+    private float getMarkerLabelRotation(final Marker marker) {
+        if (mMarkerLabelOrientation != CircularView.LABEL_ORIENTATION_RADIAL) {
+            return 0f;
+        }
+        // Point the text along the marker's ray, flipping it on the left half so it is never upside down.
+        final float degree = marker.getDegree();
+        return degree > 90f && degree < 270f ? degree - 180f : degree;
+    }
+}
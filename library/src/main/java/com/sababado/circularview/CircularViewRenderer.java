@@ -0,0 +1,347 @@
+package com.sababado.circularview;
+
+import android.content.Context;
+import android.database.DataSetObserver;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.util.TypedValue;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Draws what a {@link CircularView} would draw, without a view. Use this to produce thumbnails of many dials,
+ * for example in a list, without measuring, laying out and binding a view for each one.
+ * <p>
+ * The renderer uses the same marker layout, drawing code and center text layout as {@link CircularView}.
+ * Rendering may happen on any thread. The adapter's {@link BaseCircularViewAdapter#setupMarker(int, Marker)}
+ * is called on the rendering thread, so it must be safe to call from there.
+ * </p>
+ * <p>
+ * Bitmaps returned from {@link #getBitmap(int, int, float)} are cached by the adapter's generation, which changes
+ * every time the adapter notifies a data set change, the size and the highlighted degree. They belong to the
+ * cache, so they must not be recycled or drawn into by the caller.
+ * </p>
+ */
+public class CircularViewRenderer {
+    private static final int DEFAULT_CACHE_SIZE_BYTES = 4 * 1024 * 1024;
+
+    private final Context mContext;
+    private final BaseCircularViewAdapter mAdapter;
+    private final CircularViewObject mCircle;
+    private final ArrayList<Marker> mMarkerList = new ArrayList<Marker>();
+    private final int mDefaultMarkerRadius;
+    private final TextPaint mTextPaint;
+    private final CircularViewPainter mPainter;
+    private final LruCache<Key, Bitmap> mBitmapCache;
+
+    private MarkerLayout mMarkerLayout;
+    private float mMarkerStartingPoint;
+    private boolean mDrawHighlightedMarkerOnTop;
+    private String mText;
+    private CenterTextLayout.Key mTextLayoutKey;
+    private StaticLayout mTextLayout;
+
+    private volatile int mAdapterGeneration;
+    private int mBoundGeneration = -1;
+    private final DataSetObserver mDataSetObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            mAdapterGeneration++;
+            mBitmapCache.evictAll();
+        }
+
+        @Override
+        public void onInvalidated() {
+            onChanged();
+        }
+    };
+
+    /**
+     * Create a renderer with a default bitmap cache size.
+     *
+     * @param context Context used to resolve marker resources.
+     * @param adapter Adapter that sets up the markers.
+     */
+    public CircularViewRenderer(final Context context, final BaseCircularViewAdapter adapter) {
+        this(context, adapter, DEFAULT_CACHE_SIZE_BYTES);
+    }
+
+    /**
+     * Create a renderer.
+     *
+     * @param context        Context used to resolve marker resources.
+     * @param adapter        Adapter that sets up the markers.
+     * @param cacheSizeBytes Maximum number of bytes of bitmaps to cache.
+     */
+    public CircularViewRenderer(final Context context, final BaseCircularViewAdapter adapter, final int cacheSizeBytes) {
+        mContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        mAdapter = adapter;
+        mCircle = new CircularViewObject(mContext, CircularView.CIRCLE_TO_MARKER_PADDING, CircularViewObject.NO_COLOR);
+        mDefaultMarkerRadius = mContext.getResources().getInteger(R.integer.cv_default_marker_radius);
+        mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        mTextPaint.setTextSize(24f);
+        mTextPaint.setColor(Color.BLACK);
+        final TextPaint markerLabelPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        markerLabelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 12f,
+                mContext.getResources().getDisplayMetrics()));
+        mPainter = new CircularViewPainter(new MarkerLabelCache(markerLabelPaint));
+        mBitmapCache = new LruCache<Key, Bitmap>(cacheSizeBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        mAdapter.registerDataSetObserver(mDataSetObserver);
+    }
+
+    /**
+     * Get the center circle object. Customize it the same way as {@link CircularView#getCenterCircle()}.
+     * Call {@link #clearCache()} after changing it.
+     *
+     * @return The center circle object.
+     */
+    public CircularViewObject getCenterCircle() {
+        return mCircle;
+    }
+
+    /**
+     * Set the starting point for the markers.
+     *
+     * @param startingPoint Starting point for the markers.
+     * @see CircularView#setMarkerStartingPoint(float)
+     */
+    public synchronized void setMarkerStartingPoint(final float startingPoint) {
+        if (mMarkerStartingPoint != startingPoint) {
+            mMarkerStartingPoint = startingPoint;
+            mBitmapCache.evictAll();
+        }
+    }
+
+    /**
+     * Set the flag that determines if the highlighted marker will draw on top of other markers.
+     *
+     * @param drawHighlightedMarkerOnTop the flag that determines if the highlighted marker will draw on top of other markers.
+     * @see CircularView#setDrawHighlightedMarkerOnTop(boolean)
+     */
+    public synchronized void setDrawHighlightedMarkerOnTop(final boolean drawHighlightedMarkerOnTop) {
+        if (mDrawHighlightedMarkerOnTop != drawHighlightedMarkerOnTop) {
+            mDrawHighlightedMarkerOnTop = drawHighlightedMarkerOnTop;
+            mBitmapCache.evictAll();
+        }
+    }
+
+    /**
+     * Set the text drawn in the center.
+     *
+     * @param text  Text to draw, or null for none.
+     * @param size  Text size in pixels.
+     * @param color Text color.
+     */
+    public synchronized void setText(final String text, final float size, final int color) {
+        mText = text;
+        mTextPaint.setTextSize(size);
+        mTextPaint.setColor(color);
+        mBitmapCache.evictAll();
+    }
+
+    /**
+     * Set how marker labels are drawn.
+     *
+     * @param size        Text size in pixels.
+     * @param color       Text color.
+     * @param orientation One of {@link CircularView#LABEL_ORIENTATION_UPRIGHT} or
+     *                    {@link CircularView#LABEL_ORIENTATION_RADIAL}.
+     * @see Marker#setLabel(String)
+     */
+    public synchronized void setMarkerLabelStyle(final float size, final int color, final int orientation) {
+        final MarkerLabelCache labelCache = mPainter.getMarkerLabelCache();
+        labelCache.getPaint().setTextSize(size);
+        labelCache.getPaint().setColor(color);
+        labelCache.onPaintChanged();
+        mPainter.setMarkerLabelOrientation(orientation);
+        mBitmapCache.evictAll();
+    }
+
+    /**
+     * Draw the dial onto a bitmap, or return a cached bitmap if the adapter hasn't changed since one was drawn with
+     * the same arguments.
+     *
+     * @param width             Width of the bitmap.
+     * @param height            Height of the bitmap.
+     * @param highlightedDegree Degree to highlight, or {@link CircularView#HIGHLIGHT_NONE}.
+     * @return A bitmap owned by this renderer's cache.
+     */
+    public Bitmap getBitmap(final int width, final int height, final float highlightedDegree) {
+        final Key key = new Key(mAdapterGeneration, width, height, highlightedDegree);
+        Bitmap bitmap = mBitmapCache.get(key);
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            draw(new Canvas(bitmap), width, height, highlightedDegree);
+            mBitmapCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Draw the dial onto a canvas. Nothing is cached.
+     *
+     * @param canvas            Canvas to draw on.
+     * @param width             Width of the area to draw in, starting at the canvas origin.
+     * @param height            Height of the area to draw in, starting at the canvas origin.
+     * @param highlightedDegree Degree to highlight, or {@link CircularView#HIGHLIGHT_NONE}.
+     */
+    public synchronized void draw(final Canvas canvas, final int width, final int height, final float highlightedDegree) {
+        final float actualDimension = CircularView.getActualDimension(Math.min(width, height));
+        final float circleRadius = CircularView.getCircleRadius(actualDimension);
+        final float centerX = width / 2f;
+        final float centerY = height / 2f;
+        mCircle.init(centerX, centerY, circleRadius, null);
+        setupMarkers(centerX, centerY, CircularView.getMarkerRadiusFromCenter(circleRadius));
+        final Marker highlightedMarker = highlight(highlightedDegree);
+        // Markers may have been rebound and highlighted differently since the last draw.
+        mPainter.invalidateDrawOrder();
+        mPainter.draw(canvas, mCircle, mMarkerList, mDrawHighlightedMarkerOnTop ? highlightedMarker : null, null,
+                layoutText(circleRadius), mTextPaint.getColor());
+    }
+
+    private void setupMarkers(final float centerX, final float centerY, final float radiusFromCenter) {
+        final int markerCount = mAdapter.getCount();
+        final int generation = mAdapterGeneration;
+        float[] weights = null;
+        if (mAdapter instanceof WeightedCircularViewAdapter) {
+            weights = new float[markerCount];
+            for (int position = 0; position < markerCount; position++) {
+                weights[position] = ((WeightedCircularViewAdapter) mAdapter).getWeight(position);
+            }
+        }
+        final boolean layoutChanged = mMarkerLayout == null
+                || !mMarkerLayout.matches(markerCount, mMarkerStartingPoint, radiusFromCenter, weights);
+        if (layoutChanged) {
+            // Thumbnails tend to share their geometry, so evenly spaced layouts always go through the shared cache.
+            mMarkerLayout = weights == null
+                    ? MarkerLayout.obtain(markerCount, mMarkerStartingPoint, radiusFromCenter)
+                    : MarkerLayout.compute(markerCount, mMarkerStartingPoint, radiusFromCenter, weights);
+        }
+        final boolean rebind = layoutChanged || generation != mBoundGeneration;
+        final int markerViewListSize = mMarkerList.size();
+        for (int position = 0; position < markerCount; position++) {
+            final Marker marker;
+            if (position < markerViewListSize) {
+                marker = mMarkerList.get(position);
+            } else {
+                marker = new Marker(mContext);
+                mMarkerList.add(marker);
+            }
+            // Positions always get updated since the center depends on the requested size.
+            marker.init(
+                    mMarkerLayout.offsetX[position] + centerX,
+                    mMarkerLayout.offsetY[position] + centerY,
+                    mDefaultMarkerRadius,
+                    mMarkerLayout.degrees[position],
+                    mMarkerLayout.sectionStart[position],
+                    mMarkerLayout.sectionExtent[position],
+                    null);
+            if (rebind || position >= markerViewListSize) {
+                mAdapter.setupMarker(position, marker);
+            }
+        }
+        if (markerViewListSize > markerCount) {
+            mMarkerList.subList(markerCount, markerViewListSize).clear();
+        }
+        mBoundGeneration = generation;
+    }
+
+    private Marker highlight(final float highlightedDegree) {
+        Marker highlightedMarker = null;
+        final int degree = FixedAngle.fromDegrees(highlightedDegree);
+        final int size = mMarkerList.size();
+        for (int i = 0; i < size; i++) {
+            final Marker marker = mMarkerList.get(i);
+            final boolean markerIsHighlighted = marker.getVisibility() != View.GONE
+                    && highlightedDegree != CircularView.HIGHLIGHT_NONE && marker.hasInSection(degree);
+            marker.setHighlighted(markerIsHighlighted);
+            if (markerIsHighlighted) {
+                highlightedMarker = marker;
+            }
+        }
+        return highlightedMarker;
+    }
+
+    /**
+     * @return The layout of the center text, or null if there is none.
+     */
+    private StaticLayout layoutText(final float circleRadius) {
+        if (TextUtils.isEmpty(mText)) {
+            return null;
+        }
+        final int side = (int) (circleRadius * Math.sqrt(2));
+        if (side <= 0) {
+            return null;
+        }
+        final CenterTextLayout.Key key = new CenterTextLayout.Key(mText, mTextPaint.getTextSize(),
+                mTextPaint.getTypeface(), mTextPaint.getFlags(), side, false, 0f);
+        if (!key.equals(mTextLayoutKey)) {
+            mTextLayout = CenterTextLayout.createLayout(key, new TextPaint(mTextPaint));
+            mTextLayoutKey = key;
+        }
+        return mTextLayout;
+    }
+
+    /**
+     * Remove every cached bitmap.
+     */
+    public void clearCache() {
+        mBitmapCache.evictAll();
+    }
+
+    /**
+     * Stop listening to the adapter and clear the cache. The renderer must not be used afterwards.
+     */
+    public void release() {
+        mAdapter.unregisterDataSetObserver(mDataSetObserver);
+        mBitmapCache.evictAll();
+    }
+
+    private static final class Key {
+        final int generation;
+        final int width;
+        final int height;
+        final float highlightedDegree;
+
+        Key(final int generation, final int width, final int height, final float highlightedDegree) {
+            this.generation = generation;
+            this.width = width;
+            this.height = height;
+            this.highlightedDegree = highlightedDegree;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            if (generation != key.generation) return false;
+            if (width != key.width) return false;
+            if (height != key.height) return false;
+            return Float.compare(key.highlightedDegree, highlightedDegree) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = generation;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + (highlightedDegree != +0.0f ? Float.floatToIntBits(highlightedDegree) : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.sababado.circularview;
+
+/**
+ * An adapter whose {@link #setupMarker(int, Marker)} is safe to call from several threads at once.
+ * <p>
+ * When a {@link CircularView} has enough markers it splits binding into chunks and calls
+ * {@link #setupMarker(int, Marker)} for each chunk on a background thread, while the UI thread binds a chunk too.
+ * Layout waits for every chunk to finish, then hooks up drawable callbacks on the UI thread.
+ * Each marker is only ever bound by one thread, so an implementation only needs to make sure that whatever it
+ * reads to set up a marker (the data set, caches, formatters) can be read concurrently.
+ * </p>
+ * <p>
+ * {@link #getCount()} and the data set observer methods are still only called on the UI thread.
+ * </p>
+ */
+public interface ConcurrentCircularViewAdapter extends BaseCircularViewAdapter {
+}
@@ -0,0 +1,68 @@
+package com.sababado.circularview;
+
+/**
+ * Angles as fixed-point fractions of a turn, 2^32 units per revolution stored in an int.
+ * <p>
+ * Adding and subtracting wraps around the circle through integer overflow, so angles never need to be
+ * normalized. An arc is a start angle plus an unsigned, inclusive extent, which makes checking whether an angle
+ * falls inside of it a single unsigned compare. Arcs built from {@link #fraction(long, long)} tile the circle
+ * exactly, without the gaps or overlaps that float boundaries leave.
+ * </p>
+ */
+final class FixedAngle {
+    /**
+     * Units in one full revolution.
+     */
+    static final long TURN = 1L << 32;
+    private static final double UNITS_PER_DEGREE = TURN / 360.0;
+
+    private FixedAngle() {
+    }
+
+    /**
+     * Convert degrees to a fixed-point angle.
+     *
+     * @param degrees Any degree value, it doesn't need to be between 0 and 360.
+     * @return The fixed-point angle.
+     */
+    static int fromDegrees(final float degrees) {
+        final double turns = degrees / 360.0;
+        // The value is in [0, TURN], narrowing to int wraps TURN onto 0.
+        return (int) (long) ((turns - Math.floor(turns)) * TURN);
+    }
+
+    /**
+     * Convert a fixed-point angle to degrees.
+     *
+     * @param angle The fixed-point angle.
+     * @return Degrees, greater than or equal to 0 and less than 360.
+     */
+    static float toDegrees(final int angle) {
+        final float degrees = (float) ((angle & 0xFFFFFFFFL) / UNITS_PER_DEGREE);
+        // Angles just short of a full turn may round up in float.
+        return degrees < 360f ? degrees : 0f;
+    }
+
+    /**
+     * Get the fixed-point angle of a fraction of a turn, rounded down.
+     *
+     * @param numerator   Numerator of the fraction, between 0 and <code>denominator</code>.
+     * @param denominator Denominator of the fraction, must be positive.
+     * @return <code>numerator / denominator</code> of a turn.
+     */
+    static int fraction(final long numerator, final long denominator) {
+        return (int) ((numerator << 32) / denominator);
+    }
+
+    /**
+     * Check if an angle is inside of an arc.
+     *
+     * @param angle  Angle to check.
+     * @param start  Start of the arc.
+     * @param extent Inclusive, unsigned extent of the arc. -1 covers the whole circle.
+     * @return True if the angle is between <code>start</code> and <code>start + extent</code> going clockwise.
+     */
+    static boolean inArc(final int angle, final int start, final int extent) {
+        return ((angle - start) ^ Integer.MIN_VALUE) <= (extent ^ Integer.MIN_VALUE);
+    }
+}
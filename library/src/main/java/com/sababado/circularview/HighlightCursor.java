@@ -0,0 +1,220 @@
+package com.sababado.circularview;
+
+import android.animation.Animator;
+import android.animation.ValueAnimator;
+
+/**
+ * A named pointer on a {@link CircularView} that highlights the marker under its degree, independently of the
+ * view's own highlighted degree and of other cursors. Use several cursors for clock hands or for the positions of
+ * several users on one dial.
+ * <p>
+ * Cursors are created with {@link CircularView#addHighlightCursor(String)}. Each cursor resolves its marker with a
+ * single lookup into the view's marker layout, so moving a cursor never scans the markers. Markers under any
+ * cursor report {@link Marker#isCursorHighlighted()} and their drawables get the focused state, the same as the
+ * marker under the view's highlighted degree.
+ * </p>
+ */
+public final class HighlightCursor {
+    private final CircularView mView;
+    private final String mName;
+    private float mDegree = CircularView.HIGHLIGHT_NONE;
+    private Marker mHighlightedMarker;
+    private int mHighlightedPosition = -1;
+    private OnHighlightListener mOnHighlightListener;
+    /**
+     * Created the first time the cursor is animated. Moves the cursor through an update listener rather than a
+     * property name, so it keeps working when the app is minified.
+     */
+    private ValueAnimator mAnimator;
+    private boolean mAnimationWasCanceled;
+
+    HighlightCursor(final CircularView view, final String name) {
+        mView = view;
+        mName = name;
+    }
+
+    /**
+     * Get the name this cursor was added with.
+     *
+     * @return The cursor's name.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Get the degree this cursor points at.
+     *
+     * @return The degree, or {@link CircularView#HIGHLIGHT_NONE}.
+     */
+    public float getDegree() {
+        return mDegree;
+    }
+
+    /**
+     * Point this cursor at a degree. Pass {@link CircularView#HIGHLIGHT_NONE} to not highlight anything.
+     *
+     * @param degree Value in degrees.
+     */
+    public void setDegree(final float degree) {
+        mDegree = degree;
+        mView.resolveHighlightCursor(this);
+    }
+
+    /**
+     * Get the marker this cursor highlights.
+     *
+     * @return The highlighted marker, or null if the cursor isn't over a visible marker.
+     */
+    public Marker getHighlightedMarker() {
+        return mHighlightedMarker;
+    }
+
+    /**
+     * Get the adapter position of the marker this cursor highlights.
+     *
+     * @return The adapter position, or -1 if the cursor isn't over a visible marker.
+     */
+    public int getHighlightedPosition() {
+        return mHighlightedPosition;
+    }
+
+    /**
+     * Set the listener that receives callbacks when this cursor moves to another marker or finishes animating.
+     *
+     * @param l Listener to receive callbacks.
+     */
+    public void setOnHighlightListener(final OnHighlightListener l) {
+        mOnHighlightListener = l;
+    }
+
+    /**
+     * Start animating this cursor's degree. This cancels any running animation of this cursor.
+     *
+     * @param startDegree Degree to start the animation at.
+     * @param endDegree   Degree to end the animation at.
+     * @param duration    Duration the animation should be.
+     */
+    public void animateDegree(final float startDegree, final float endDegree, final long duration) {
+        if (mAnimator == null) {
+            mAnimator = new ValueAnimator();
+            mAnimator.addUpdateListener(mAnimatorUpdateListener);
+            mAnimator.addListener(mAnimatorListener);
+        }
+        mAnimator.cancel();
+        mAnimator.setFloatValues(startDegree, endDegree);
+        mAnimator.setDuration(duration);
+        mAnimator.start();
+    }
+
+    /**
+     * Cancel the running animation of this cursor, if any. The cursor stays at the degree it was animated to.
+     */
+    public void cancelAnimation() {
+        if (mAnimator != null) {
+            mAnimator.cancel();
+        }
+    }
+
+    /**
+     * Check if this cursor is animating.
+     *
+     * @return True if the cursor is animating.
+     */
+    public boolean isAnimating() {
+        return mAnimator != null && mAnimator.isRunning();
+    }
+
+    /**
+     * Move the highlight to another marker. Called by the view after resolving this cursor's degree.
+     *
+     * @param marker   Marker under the cursor, or null.
+     * @param position Adapter position of the marker, or -1.
+     */
+    void setHighlight(final Marker marker, final int position) {
+        if (marker == mHighlightedMarker && position == mHighlightedPosition) {
+            return;
+        }
+        if (mHighlightedMarker != null) {
+            mHighlightedMarker.removeCursorHighlight();
+        }
+        if (marker != null) {
+            marker.addCursorHighlight();
+        }
+        mHighlightedMarker = marker;
+        mHighlightedPosition = position;
+        if (mOnHighlightListener != null) {
+            mOnHighlightListener.onHighlightChanged(mView, this, marker, position);
+        }
+    }
+
+    private final ValueAnimator.AnimatorUpdateListener mAnimatorUpdateListener = new ValueAnimator.AnimatorUpdateListener() {
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            setDegree((Float) animation.getAnimatedValue());
+        }
+    };
+
+    private final Animator.AnimatorListener mAnimatorListener = new Animator.AnimatorListener() {
+        @Override
+        public void onAnimationStart(Animator animation) {
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            // Remove the cursor's line.
+            mView.postInvalidate();
+            if (!mAnimationWasCanceled) {
+                if (mOnHighlightListener != null && mHighlightedMarker != null) {
+                    mOnHighlightListener.onHighlightAnimationEnd(mView, HighlightCursor.this, mHighlightedMarker, mHighlightedPosition);
+                }
+            } else {
+                mAnimationWasCanceled = false;
+            }
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            mAnimationWasCanceled = true;
+        }
+
+        @Override
+        public void onAnimationRepeat(Animator animation) {
+        }
+    };
+
+    @Override
+    public String toString() {
+        return "HighlightCursor{" +
+                "name=" + mName +
+                ", degree=" + mDegree +
+                ", highlightedPosition=" + mHighlightedPosition +
+                '}';
+    }
+
+    /**
+     * Use this to receive callbacks when a highlight cursor changes.
+     */
+    public interface OnHighlightListener {
+        /**
+         * Called when the cursor moves onto another marker, or off of all markers.
+         *
+         * @param view     The circular view the cursor belongs to.
+         * @param cursor   The cursor that moved.
+         * @param marker   The marker now under the cursor, or null.
+         * @param position The adapter position of the marker, or -1.
+         */
+        public void onHighlightChanged(CircularView view, HighlightCursor cursor, Marker marker, int position);
+
+        /**
+         * Called when the cursor's animation ends over a marker. This is <b>not</b> called when the animation
+         * is canceled.
+         *
+         * @param view     The circular view the cursor belongs to.
+         * @param cursor   The cursor that finished animating.
+         * @param marker   The marker under the cursor.
+         * @param position The adapter position of the marker.
+         */
+        public void onHighlightAnimationEnd(CircularView view, HighlightCursor cursor, Marker marker, int position);
+    }
+}
@@ -4,17 +4,47 @@ import android.animation.Animator;
 import android.animation.AnimatorSet;
 import android.animation.ObjectAnimator;
 import android.content.Context;
+import android.graphics.Rect;
 
 /**
  * TODO Document
  */
 public class Marker extends CircularViewObject {
-    private float sectionMin;
-    private float sectionMax;
+    private float degree;
+    private String label;
+    /**
+     * Start of the section this marker highlights for, as a {@link FixedAngle}.
+     */
+    private int sectionStart;
+    /**
+     * Inclusive extent of the section this marker highlights for, as a {@link FixedAngle}.
+     */
+    private int sectionExtent;
     private boolean isHighlighted;
+    /**
+     * Number of {@link HighlightCursor}s over this marker.
+     */
+    private int cursorHighlightCount;
+    private boolean isInHighlightedRange;
+    /**
+     * Stamp of the last range resolution that found this marker in the highlighted range.
+     */
+    int rangeGeneration;
     private boolean shouldAnimateWhenHighlighted;
+    private float translationX;
+    private float translationY;
+    private float scale = 1f;
+    private float alpha = 1f;
+    /**
+     * Area last invalidated for this marker's transform, so that the next change also redraws where it was.
+     * Created the first time the transform changes.
+     */
+    Rect transformBounds;
 
     public final static int ANIMATION_DURATION = 650;
+    /**
+     * Created the first time the marker bounces. Most markers never do, so they never pay for it.
+     */
     private AnimatorSet animatorSet;
 
     /**
@@ -28,19 +58,64 @@ public class Marker extends CircularViewObject {
         shouldAnimateWhenHighlighted = false;
     }
 
-    void init(final float x, final float y, final float radius, final float sectionMin, final float sectionMax, final CircularView.AdapterDataSetObserver adapterDataSetObserver) {
+    void init(final float x, final float y, final float radius, final float degree, final int sectionStart, final int sectionExtent, final CircularView.AdapterDataSetObserver adapterDataSetObserver) {
         super.init(x, y, radius, adapterDataSetObserver);
-        this.sectionMin = sectionMin;
-        this.sectionMax = sectionMax;
+        this.degree = degree;
+        this.sectionStart = sectionStart;
+        this.sectionExtent = sectionExtent;
     }
 
-    public boolean hasInSection(final float x) {
-        if (sectionMin <= sectionMax) {
-            return x <= sectionMax && x >= sectionMin;
+    /**
+     * Get the degree this marker is placed at around the center of the view.
+     *
+     * @return The marker's degree, between 0 and 360.
+     */
+    public float getDegree() {
+        return degree;
+    }
+
+    /**
+     * Get the text label drawn with this marker.
+     *
+     * @return The label, or null if there is none.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Set a text label to draw centered on this marker. Labels are drawn with a paint shared by every marker in
+     * the view, see {@link CircularView#setMarkerLabelTextSize(int, float)},
+     * {@link CircularView#setMarkerLabelColor(int)} and {@link CircularView#setMarkerLabelOrientation(int)}.
+     * Prefer this over rendering text into a bitmap for {@link #setSrc(android.graphics.Bitmap)}.
+     *
+     * @param label The label, or null to remove it.
+     */
+    public void setLabel(final String label) {
+        if (label == null ? this.label != null : !label.equals(this.label)) {
+            this.label = label;
+            invalidate();
         }
-        final float endDifference = 360f - sectionMin;
-        return (x <= sectionMax && x >= -endDifference) ||
-                (x <= sectionMax + endDifference + sectionMin && x >= sectionMin);
+    }
+
+    /**
+     * Check if a degree falls in the section of the circle this marker highlights for.
+     *
+     * @param x Degree to check. It doesn't need to be between 0 and 360.
+     * @return True if the degree is in this marker's section.
+     */
+    public boolean hasInSection(final float x) {
+        return hasInSection(FixedAngle.fromDegrees(x));
+    }
+
+    /**
+     * Check if an angle falls in the section of the circle this marker highlights for.
+     *
+     * @param angle Angle to check, as a {@link FixedAngle}.
+     * @return True if the angle is in this marker's section.
+     */
+    boolean hasInSection(final int angle) {
+        return FixedAngle.inArc(angle, sectionStart, sectionExtent);
     }
 
     /**
@@ -60,31 +135,149 @@ public class Marker extends CircularViewObject {
         animatorSet.addListener(new Animator.AnimatorListener() {
             @Override
             public void onAnimationStart(Animator animation) {
+                notifyAnimationChanged();
             }
 
             @Override
             public void onAnimationEnd(Animator animation) {
                 if(Marker.this.isHighlighted && shouldAnimateWhenHighlighted) {
                     animatorSet.start();
+                } else {
+                    notifyAnimationChanged();
                 }
             }
 
             @Override
             public void onAnimationCancel(Animator animation) {
+                setTranslationY(0f);
+                notifyAnimationChanged();
             }
 
             @Override
             public void onAnimationRepeat(Animator animation) {
             }
         });
-        final float start = y;
-        final float end = y - 25;
-        final ObjectAnimator up = ObjectAnimator.ofFloat(Marker.this, "y", start, end).setDuration(ANIMATION_DURATION);
-        final ObjectAnimator down = ObjectAnimator.ofFloat(Marker.this, "y", end, start).setDuration(ANIMATION_DURATION);
+        // Bounce with the draw time translation so the marker's layout position never changes.
+        final ObjectAnimator up = ObjectAnimator.ofFloat(Marker.this, "translationY", 0f, -25f).setDuration(ANIMATION_DURATION);
+        final ObjectAnimator down = ObjectAnimator.ofFloat(Marker.this, "translationY", -25f, 0f).setDuration(ANIMATION_DURATION);
         animatorSet.playSequentially(up, down);
         return animatorSet;
     }
 
+    /**
+     * Get the horizontal offset the marker is drawn at from its position.
+     *
+     * @return The horizontal translation in pixels.
+     */
+    public float getTranslationX() {
+        return translationX;
+    }
+
+    /**
+     * Offset where the marker is drawn horizontally without moving it. Unlike {@link #setX(float)} this doesn't
+     * change where the marker is hit or which section it highlights for, and only the area around the marker is
+     * redrawn, which makes it the property to animate.
+     *
+     * @param translationX The horizontal translation in pixels.
+     */
+    public void setTranslationX(final float translationX) {
+        if (this.translationX != translationX) {
+            this.translationX = translationX;
+            notifyTransformChanged();
+        }
+    }
+
+    /**
+     * Get the vertical offset the marker is drawn at from its position.
+     *
+     * @return The vertical translation in pixels.
+     */
+    public float getTranslationY() {
+        return translationY;
+    }
+
+    /**
+     * Offset where the marker is drawn vertically without moving it. {@link #animateBounce()} animates this.
+     *
+     * @param translationY The vertical translation in pixels.
+     * @see #setTranslationX(float)
+     */
+    public void setTranslationY(final float translationY) {
+        if (this.translationY != translationY) {
+            this.translationY = translationY;
+            notifyTransformChanged();
+        }
+    }
+
+    /**
+     * Get the scale the marker and its label are drawn at.
+     *
+     * @return The scale, 1 by default.
+     */
+    public float getScale() {
+        return scale;
+    }
+
+    /**
+     * Scale the marker and its label around the marker's center when drawing, without changing its radius.
+     *
+     * @param scale The scale, 1 to draw at the marker's size.
+     * @see #setTranslationX(float)
+     */
+    public void setScale(final float scale) {
+        if (this.scale != scale) {
+            this.scale = scale;
+            notifyTransformChanged();
+        }
+    }
+
+    /**
+     * Get the opacity the marker and its label are drawn with.
+     *
+     * @return The alpha, from 0 to 1.
+     */
+    public float getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * Set the opacity the marker and its label are drawn with. Anything below 1 draws the marker through an
+     * offscreen layer the size of the marker, so prefer to only use it while animating.
+     *
+     * @param alpha The alpha, from 0 for transparent to 1 for opaque.
+     * @see #setTranslationX(float)
+     */
+    public void setAlpha(final float alpha) {
+        final float clamped = Math.max(0f, Math.min(1f, alpha));
+        if (this.alpha != clamped) {
+            this.alpha = clamped;
+            notifyTransformChanged();
+        }
+    }
+
+    /**
+     * Check if the marker is drawn with a translation, scale or alpha.
+     *
+     * @return True if drawing this marker needs a transform.
+     */
+    boolean hasTransform() {
+        return translationX != 0f || translationY != 0f || scale != 1f || alpha != 1f;
+    }
+
+    private void notifyTransformChanged() {
+        final CircularView.AdapterDataSetObserver observer = getAdapterDataSetObserver();
+        if (observer != null) {
+            observer.onMarkerTransformChanged(this);
+        }
+    }
+
+    private void notifyAnimationChanged() {
+        final CircularView.AdapterDataSetObserver observer = getAdapterDataSetObserver();
+        if (observer != null) {
+            observer.onMarkerAnimationChanged();
+        }
+    }
+
     public boolean isAnimating() {
         return animatorSet != null && animatorSet.isRunning();
     }
@@ -104,9 +297,54 @@ public class Marker extends CircularViewObject {
      * @param highlighted True to mark this object as highlighted.
      */
     public void setHighlighted(boolean highlighted) {
+        final boolean changed = this.isHighlighted != highlighted;
         this.isHighlighted = highlighted;
-        updateDrawableState(VIEW_STATE_FOCUSED, highlighted);
-        invalidate();
+        updateDrawableState(VIEW_STATE_FOCUSED, highlighted || cursorHighlightCount > 0);
+        // Only schedule a redraw on an actual change; the view re-applies the highlight to every marker on each pass.
+        if (changed) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Check if one or more {@link HighlightCursor}s are over this marker.
+     *
+     * @return True if a highlight cursor highlights this marker.
+     */
+    public boolean isCursorHighlighted() {
+        return cursorHighlightCount > 0;
+    }
+
+    void addCursorHighlight() {
+        if (cursorHighlightCount++ == 0) {
+            updateDrawableState(VIEW_STATE_FOCUSED, true);
+            invalidate();
+        }
+    }
+
+    void removeCursorHighlight() {
+        if (cursorHighlightCount > 0 && --cursorHighlightCount == 0) {
+            updateDrawableState(VIEW_STATE_FOCUSED, isHighlighted);
+            invalidate();
+        }
+    }
+
+    /**
+     * Check if this marker is inside of the view's highlighted range.
+     *
+     * @return True if this marker is in the highlighted range.
+     * @see CircularView#setHighlightedRange(float, float)
+     */
+    public boolean isInHighlightedRange() {
+        return isInHighlightedRange;
+    }
+
+    void setInHighlightedRange(final boolean inHighlightedRange) {
+        if (isInHighlightedRange != inHighlightedRange) {
+            isInHighlightedRange = inHighlightedRange;
+            updateDrawableState(VIEW_STATE_SELECTED, inHighlightedRange);
+            invalidate();
+        }
     }
 
     boolean isShouldAnimateWhenHighlighted() {
@@ -128,37 +366,14 @@ public class Marker extends CircularViewObject {
         }
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-
-        Marker marker = (Marker) o;
-
-        if (Float.compare(marker.sectionMax, sectionMax) != 0) return false;
-        if (Float.compare(marker.sectionMin, sectionMin) != 0) return false;
-        if (animatorSet != null ? !animatorSet.equals(marker.animatorSet) : marker.animatorSet != null)
-            return false;
-
-        return true;
-    }
-
-    @Override
-    public int hashCode() {
-        int result = super.hashCode();
-        result = 31 * result + (sectionMin != +0.0f ? Float.floatToIntBits(sectionMin) : 0);
-        result = 31 * result + (sectionMax != +0.0f ? Float.floatToIntBits(sectionMax) : 0);
-        result = 31 * result + (animatorSet != null ? animatorSet.hashCode() : 0);
-        return result;
-    }
-
     @Override
     public String toString() {
         return "Marker{" +
-                "sectionMin=" + sectionMin +
-                ", sectionMax=" + sectionMax +
-                ", animatorSet=" + animatorSet +
+                "degree=" + degree +
+                ", label=" + label +
+                ", sectionStart=" + FixedAngle.toDegrees(sectionStart) +
+                ", sectionEnd=" + FixedAngle.toDegrees(sectionStart + sectionExtent) +
+                ", isHighlighted=" + isHighlighted +
                 "} " + super.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,294 @@
+package com.sababado.circularview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.os.Build;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Packs the bitmaps of markers set with {@link CircularViewObject#setSrc(Bitmap)} into one shared bitmap and draws
+ * them all with a single {@link Canvas#drawBitmapMesh(Bitmap, int, int, float[], int, int[], int, Paint)} call.
+ * <p>
+ * The atlas is a grid of square cells. Every cell is split into {@link #CELL_DIVISIONS} mesh divisions in each
+ * direction and followed by one transparent gap division, so the mesh, which always samples the atlas uniformly,
+ * can place each cell independently: a cell's vertices are moved over its marker, and the quads over the gaps only
+ * ever sample transparent pixels. Bitmaps are packed inside a transparent border of {@link #CELL_BORDER} texels,
+ * and the cell's vertices are spread past the marker's bounds to match, so filtering at the edge of a cell blends
+ * the bitmap with the border rather than stretching its outer texels across the gap quads.
+ * </p>
+ * <p>
+ * Cells are assigned to markers by id and remember the source they were packed from, so when a marker's bitmap
+ * changes only its own cell is repacked. The whole atlas is only rebuilt when it runs out of cells or the markers
+ * grow past the cell size.
+ * </p>
+ */
+final class MarkerBitmapAtlas {
+    /**
+     * Mesh divisions per cell side. The gap after every cell is one division wide.
+     */
+    private static final int CELL_DIVISIONS = 4;
+    /**
+     * Transparent texels kept around the bitmap on every side of a cell.
+     */
+    private static final int CELL_BORDER = 1;
+    /**
+     * Smallest cell worth packing. Dials with so many markers that their cells would be smaller than this don't
+     * use the atlas, see {@link #canHold(int)}.
+     */
+    private static final int MIN_CELL_SIZE = 2 * CELL_DIVISIONS;
+    private static final int MAX_CELL_SIZE = 256;
+    /**
+     * Largest atlas side, the smallest maximum texture size devices are required to support.
+     */
+    private static final int MAX_ATLAS_SIZE = 2048;
+
+    private Bitmap mAtlas;
+    private Canvas mAtlasCanvas;
+    private int mColumns;
+    private int mRows;
+    private int mCellSize;
+    private final SparseIntArray mSlots = new SparseIntArray();
+    private int mSlotCount;
+    private int[] mSlotSrcGenerations;
+    private int[] mSlotBitmapGenerations;
+    private float[] mVerts;
+    private final Rect mBounds = new Rect();
+    private final Rect mCellRect = new Rect();
+    private final Paint mPackPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint mClearPaint = new Paint();
+    private final Paint mMeshPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+
+    MarkerBitmapAtlas() {
+        mClearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+    }
+
+    /**
+     * Check if a marker can be drawn from the atlas.
+     *
+     * @param marker Marker to check.
+     * @return True if the marker is visible, shows a bitmap given to {@link CircularViewObject#setSrc(Bitmap)}
+     * and has no fill color, circular crop or transform.
+     */
+    static boolean canPack(final Marker marker) {
+        final Bitmap bitmap = marker.getSrcBitmap();
+        return bitmap != null && !bitmap.isRecycled()
+                && marker.getVisibility() == View.VISIBLE
+                && marker.getStyle().getFillColor() == CircularViewObject.NO_COLOR
+                && !marker.getStyle().isCropToCircle()
+                && !marker.hasTransform()
+                && marker.getRadius() > 0f;
+    }
+
+    /**
+     * Check if the atlas has room for a number of markers without growing past {@link #MAX_ATLAS_SIZE}.
+     *
+     * @param capacity Number of markers the atlas must have a cell for.
+     * @return True if every marker gets a cell of at least {@link #MIN_CELL_SIZE} texels.
+     */
+    static boolean canHold(final int capacity) {
+        return getMaxCellSize(getColumns(capacity)) >= MIN_CELL_SIZE;
+    }
+
+    /**
+     * Check if a canvas can draw the mesh. Hardware accelerated canvases only support bitmap meshes
+     * since API 18.
+     *
+     * @param canvas Canvas to check.
+     * @return True if the atlas can draw on the canvas.
+     */
+    static boolean canDraw(final Canvas canvas) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2 || !canvas.isHardwareAccelerated();
+    }
+
+    /**
+     * Draw markers, all of which must satisfy {@link #canPack(Marker)}, packing any that changed since the last draw.
+     * The capacity must satisfy {@link #canHold(int)}.
+     *
+     * @param canvas   Canvas to draw on.
+     * @param markers  Markers of the view.
+     * @param order    Indices into <code>markers</code>.
+     * @param start    First entry of <code>order</code> to draw.
+     * @param end      Entry of <code>order</code> to stop at, exclusive.
+     * @param capacity Number of cells the atlas should have room for, normally the number of markers.
+     */
+    void draw(final Canvas canvas, final ArrayList<Marker> markers, final int[] order, final int start, final int end,
+              final int capacity) {
+        ensureAtlas(markers, order, start, end, Math.max(capacity, end - start));
+        final int meshWidth = mColumns * (CELL_DIVISIONS + 1);
+        final int meshHeight = mRows * (CELL_DIVISIONS + 1);
+        final int rowStride = (meshWidth + 1) * 2;
+        final float[] verts = mVerts;
+        final float division = mCellSize / CELL_DIVISIONS;
+        // Collapse every cell that isn't drawn onto one point so it has no area.
+        final Marker first = markers.get(order[start]);
+        for (int i = 0; i < verts.length; i += 2) {
+            verts[i] = first.getX();
+            verts[i + 1] = first.getY();
+        }
+        for (int i = start; i < end; i++) {
+            final Marker marker = markers.get(order[i]);
+            final int slot = obtainSlot(marker);
+            final Rect bounds = marker.getDrawableBounds(mBounds);
+            // The bitmap fills the cell inside its border, so the cell covers a little more than the marker.
+            final float scaleX = (float) bounds.width() / (mCellSize - 2 * CELL_BORDER);
+            final float scaleY = (float) bounds.height() / (mCellSize - 2 * CELL_BORDER);
+            final float left = bounds.left - CELL_BORDER * scaleX;
+            final float top = bounds.top - CELL_BORDER * scaleY;
+            final int firstVertex = (slot / mColumns) * (CELL_DIVISIONS + 1) * rowStride
+                    + (slot % mColumns) * (CELL_DIVISIONS + 1) * 2;
+            for (int row = 0; row <= CELL_DIVISIONS; row++) {
+                final float y = top + row * division * scaleY;
+                int v = firstVertex + row * rowStride;
+                for (int column = 0; column <= CELL_DIVISIONS; column++) {
+                    verts[v++] = left + column * division * scaleX;
+                    verts[v++] = y;
+                }
+            }
+        }
+        canvas.drawBitmapMesh(mAtlas, meshWidth, meshHeight, verts, 0, null, 0, mMeshPaint);
+    }
+
+    /**
+     * Free the atlas bitmap. The next draw rebuilds it.
+     */
+    void release() {
+        if (mAtlas != null) {
+            mAtlas.recycle();
+            mAtlas = null;
+            mAtlasCanvas = null;
+        }
+        mSlots.clear();
+        mSlotCount = 0;
+    }
+
+    /**
+     * Get the cell a marker was packed into.
+     *
+     * @param marker Marker to look up.
+     * @return Index of the marker's cell, or -1 if it has none.
+     */
+    int getSlot(final Marker marker) {
+        return mSlots.get(marker.getId(), -1);
+    }
+
+    /**
+     * Get the number of cells in the atlas.
+     *
+     * @return Number of cells, 0 before the first draw.
+     */
+    int getSlotCapacity() {
+        return mColumns * mRows;
+    }
+
+    /**
+     * Make sure there is an atlas with enough cells, cells big enough for the markers being drawn, and a free cell
+     * for every marker being drawn that doesn't have one yet.
+     */
+    private void ensureAtlas(final ArrayList<Marker> markers, final int[] order, final int start, final int end,
+                             final int capacity) {
+        final int columns = getColumns(capacity);
+        int cellSize = 0;
+        for (int i = start; i < end; i++) {
+            final Rect bounds = markers.get(order[i]).getDrawableBounds(mBounds);
+            cellSize = Math.max(cellSize, Math.max(bounds.width(), bounds.height()));
+        }
+        cellSize = Math.max(MIN_CELL_SIZE,
+                Math.min(roundUpToDivisions(cellSize + 2 * CELL_BORDER), getMaxCellSize(columns)));
+        if (mAtlas == null || capacity > mColumns * mRows || cellSize > mCellSize) {
+            rebuild(columns, capacity, cellSize);
+        }
+        int unslotted = 0;
+        for (int i = start; i < end; i++) {
+            if (mSlots.get(markers.get(order[i]).getId(), -1) == -1) {
+                unslotted++;
+            }
+        }
+        if (mSlotCount + unslotted > mSlotSrcGenerations.length) {
+            // The cells are taken, most likely by markers that were replaced. Start over before any vertex is
+            // placed, so every marker drawn in this pass keeps the cell it gets.
+            mSlots.clear();
+            mSlotCount = 0;
+            mAtlas.eraseColor(0);
+        }
+    }
+
+    private void rebuild(final int columns, final int capacity, final int cellSize) {
+        release();
+        mColumns = columns;
+        mRows = (capacity + mColumns - 1) / mColumns;
+        mCellSize = cellSize;
+        final int division = mCellSize / CELL_DIVISIONS;
+        mAtlas = Bitmap.createBitmap(mColumns * (CELL_DIVISIONS + 1) * division,
+                mRows * (CELL_DIVISIONS + 1) * division, Bitmap.Config.ARGB_8888);
+        mAtlasCanvas = new Canvas(mAtlas);
+        final int slotCount = mColumns * mRows;
+        mSlotSrcGenerations = new int[slotCount];
+        mSlotBitmapGenerations = new int[slotCount];
+        mVerts = new float[(mColumns * (CELL_DIVISIONS + 1) + 1) * (mRows * (CELL_DIVISIONS + 1) + 1) * 2];
+    }
+
+    private static int getColumns(final int capacity) {
+        return (int) Math.ceil(Math.sqrt(capacity));
+    }
+
+    /**
+     * Get the largest cell size that keeps an atlas with a number of columns within {@link #MAX_ATLAS_SIZE}.
+     * Cells are a whole number of divisions so that the mesh lines up with them exactly.
+     */
+    private static int getMaxCellSize(final int columns) {
+        final int maxCellSize = Math.min(MAX_CELL_SIZE,
+                MAX_ATLAS_SIZE * CELL_DIVISIONS / (columns * (CELL_DIVISIONS + 1)));
+        return maxCellSize / CELL_DIVISIONS * CELL_DIVISIONS;
+    }
+
+    private static int roundUpToDivisions(final int size) {
+        return (size + CELL_DIVISIONS - 1) / CELL_DIVISIONS * CELL_DIVISIONS;
+    }
+
+    /**
+     * Get the cell of a marker, packing the marker's bitmap into it if it is new or changed.
+     * {@link #ensureAtlas(ArrayList, int[], int, int, int)} has made sure there is a free cell for a new marker.
+     */
+    private int obtainSlot(final Marker marker) {
+        int slot = mSlots.get(marker.getId(), -1);
+        if (slot == -1) {
+            slot = mSlotCount++;
+            mSlots.put(marker.getId(), slot);
+            pack(marker, slot);
+        } else if (mSlotSrcGenerations[slot] != marker.getSrcGeneration()
+                || mSlotBitmapGenerations[slot] != marker.getSrcBitmap().getGenerationId()) {
+            pack(marker, slot);
+        }
+        return slot;
+    }
+
+    private void pack(final Marker marker, final int slot) {
+        final Bitmap bitmap = marker.getSrcBitmap();
+        final int pitch = mCellSize / CELL_DIVISIONS * (CELL_DIVISIONS + 1);
+        final int left = (slot % mColumns) * pitch;
+        final int top = (slot / mColumns) * pitch;
+        mAtlasCanvas.drawRect(left, top, left + mCellSize, top + mCellSize, mClearPaint);
+        mCellRect.set(left + CELL_BORDER, top + CELL_BORDER, left + mCellSize - CELL_BORDER,
+                top + mCellSize - CELL_BORDER);
+        mAtlasCanvas.drawBitmap(bitmap, null, mCellRect, mPackPaint);
+        mSlotSrcGenerations[slot] = marker.getSrcGeneration();
+        mSlotBitmapGenerations[slot] = bitmap.getGenerationId();
+    }
+
+    @Override
+    public String toString() {
+        return "MarkerBitmapAtlas{" +
+                "mColumns=" + mColumns +
+                ", mRows=" + mRows +
+                ", mCellSize=" + mCellSize +
+                ", mSlotCount=" + mSlotCount +
+                '}';
+    }
+}
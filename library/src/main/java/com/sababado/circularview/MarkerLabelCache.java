@@ -0,0 +1,69 @@
+package com.sababado.circularview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.TextPaint;
+import android.util.LruCache;
+
+/**
+ * Draws marker labels with one shared paint. The width of every distinct label is measured once and
+ * cached, so labels that repeat across markers (digits, short codes) cost a single measurement no matter how
+ * many markers show them. Text is drawn directly, no bitmaps are created per marker.
+ */
+class MarkerLabelCache {
+    private static final int CACHE_SIZE = 256;
+
+    private final TextPaint mPaint;
+    private final LruCache<String, float[]> mWidths = new LruCache<String, float[]>(CACHE_SIZE);
+    private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
+    private float mBaselineOffset;
+
+    MarkerLabelCache(final TextPaint paint) {
+        mPaint = paint;
+        onPaintChanged();
+    }
+
+    TextPaint getPaint() {
+        return mPaint;
+    }
+
+    /**
+     * Must be called after anything that affects measurement (size, typeface) changes on the paint.
+     */
+    void onPaintChanged() {
+        mWidths.evictAll();
+        mPaint.getFontMetrics(mFontMetrics);
+        // Offset from the vertical center to the baseline.
+        mBaselineOffset = -(mFontMetrics.ascent + mFontMetrics.descent) / 2f;
+    }
+
+    float measure(final String label) {
+        float[] width = mWidths.get(label);
+        if (width == null) {
+            width = new float[]{mPaint.measureText(label)};
+            mWidths.put(label, width);
+        }
+        return width[0];
+    }
+
+    /**
+     * Draw a label centered on a point.
+     *
+     * @param canvas   Canvas to draw on.
+     * @param label    Label to draw.
+     * @param x        Center x coordinate.
+     * @param y        Center y coordinate.
+     * @param rotation Degrees to rotate the label around its center, 0 for upright.
+     */
+    void draw(final Canvas canvas, final String label, final float x, final float y, final float rotation) {
+        final float width = measure(label);
+        if (rotation != 0f) {
+            final int saveCount = canvas.save();
+            canvas.rotate(rotation, x, y);
+            canvas.drawText(label, x - width / 2f, y + mBaselineOffset, mPaint);
+            canvas.restoreToCount(saveCount);
+        } else {
+            canvas.drawText(label, x - width / 2f, y + mBaselineOffset, mPaint);
+        }
+    }
+}
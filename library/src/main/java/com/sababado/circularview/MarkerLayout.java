@@ -0,0 +1,321 @@
+package com.sababado.circularview;
+
+import android.os.Parcel;
+import android.util.LruCache;
+
+import java.util.Arrays;
+
+/**
+ * Immutable geometry for the markers around a {@link CircularView}: where each marker sits and which section
+ * of the circle it owns. Positions are stored as offsets from the center of the circle so that a layout
+ * does not depend on where the view is drawn.
+ * <p>
+ * Computing a layout only needs primitives, so it is safe to do on any thread. Layouts are never modified once
+ * computed, which also lets them be shared between views through {@link #obtain(int, float, float)}.
+ * </p>
+ */
+final class MarkerLayout {
+    /**
+     * Maximum number of markers, summed over all layouts, kept in the shared cache.
+     */
+    private static final int SHARED_CACHE_MARKER_CAPACITY = 4096;
+    private static final LruCache<Key, MarkerLayout> sSharedCache = new LruCache<Key, MarkerLayout>(SHARED_CACHE_MARKER_CAPACITY) {
+        @Override
+        protected int sizeOf(Key key, MarkerLayout value) {
+            return value.count + 1;
+        }
+    };
+
+    final int count;
+    final float startingPoint;
+    final float radiusFromCenter;
+    /**
+     * Weight of each marker, or null if the markers are evenly spaced.
+     */
+    final float[] weights;
+    /**
+     * Degree of each marker, between 0 and 360.
+     */
+    final float[] degrees;
+    final float[] offsetX;
+    final float[] offsetY;
+    /**
+     * Start of each marker's section as a {@link FixedAngle}.
+     */
+    final int[] sectionStart;
+    /**
+     * Inclusive extent of each marker's section as a {@link FixedAngle}. Sections tile the circle exactly.
+     */
+    final int[] sectionExtent;
+    /**
+     * Unsigned offset of each section's start from the first section's start, as a {@link FixedAngle}, in
+     * increasing order. Only set for weighted layouts, where it is binary searched to find the section of an angle.
+     */
+    final int[] sectionOffsets;
+
+    private MarkerLayout(final Parcel source) {
+        count = source.readInt();
+        startingPoint = source.readFloat();
+        radiusFromCenter = source.readFloat();
+        weights = source.createFloatArray();
+        degrees = source.createFloatArray();
+        offsetX = source.createFloatArray();
+        offsetY = source.createFloatArray();
+        sectionStart = source.createIntArray();
+        sectionExtent = source.createIntArray();
+        if (weights != null) {
+            // Offsets follow from the section starts, so they aren't parceled.
+            sectionOffsets = new int[count];
+            for (int position = 0; position < count; position++) {
+                sectionOffsets[position] = sectionStart[position] - sectionStart[0];
+            }
+        } else {
+            sectionOffsets = null;
+        }
+    }
+
+    private MarkerLayout(final int count, final float startingPoint, final float radiusFromCenter, final float[] weights) {
+        this.count = count;
+        this.startingPoint = startingPoint;
+        this.radiusFromCenter = radiusFromCenter;
+        this.weights = weights;
+        sectionOffsets = weights != null ? new int[count] : null;
+        degrees = new float[count];
+        offsetX = new float[count];
+        offsetY = new float[count];
+        sectionStart = new int[count];
+        sectionExtent = new int[count];
+    }
+
+    /**
+     * Get a layout from the process wide cache, computing and caching it if no other caller has asked for the same
+     * geometry yet. Every caller with the same inputs shares the same instance.
+     *
+     * @param count            Number of markers.
+     * @param startingPoint    Degree of the first marker.
+     * @param radiusFromCenter Distance from the center of the circle to the center of each marker.
+     * @return The shared layout.
+     */
+    static MarkerLayout obtain(final int count, final float startingPoint, final float radiusFromCenter) {
+        final Key key = new Key(count, startingPoint, radiusFromCenter);
+        MarkerLayout layout = sSharedCache.get(key);
+        if (layout == null) {
+            layout = compute(count, startingPoint, radiusFromCenter, null);
+            // Two threads may race to compute the same layout. Both results are identical, so keeping either is fine.
+            sSharedCache.put(key, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Compute the layout for markers going clockwise from the starting point.
+     *
+     * @param count            Number of markers.
+     * @param startingPoint    Degree of the first marker.
+     * @param radiusFromCenter Distance from the center of the circle to the center of each marker.
+     * @param weights          Positive, finite weight of each marker's section, or null to space markers evenly.
+     *                         The array must not be modified afterwards.
+     * @return The computed layout.
+     */
+    static MarkerLayout compute(final int count, final float startingPoint, final float radiusFromCenter, final float[] weights) {
+        final MarkerLayout layout = new MarkerLayout(count, startingPoint, radiusFromCenter, weights);
+        if (weights != null) {
+            layout.computeWeightedSections();
+            return layout;
+        }
+        final int start = FixedAngle.fromDegrees(startingPoint);
+        // loop clockwise
+        for (int position = 0; position < count; position++) {
+            final float actualDegree = FixedAngle.toDegrees(start + FixedAngle.fraction(position, count));
+            final double rad = Math.toRadians(actualDegree);
+            layout.degrees[position] = actualDegree;
+            layout.offsetX[position] = (float) (radiusFromCenter * Math.cos(rad));
+            layout.offsetY[position] = (float) (radiusFromCenter * Math.sin(rad));
+            layout.sectionStart[position] = sectionStart(start, position, count);
+            layout.sectionExtent[position] = sectionExtent(position, count);
+        }
+        return layout;
+    }
+
+    /**
+     * Size every section by its weight. Section starts come from the running sum of the weights, so the sections
+     * still tile the circle exactly. The first section is centered on the starting point and each marker is
+     * placed in the middle of its section.
+     */
+    private void computeWeightedSections() {
+        double total = 0;
+        for (int position = 0; position < count; position++) {
+            total += weights[position];
+        }
+        double prefix = 0;
+        long previousOffset = -1;
+        for (int position = 0; position < count; position++) {
+            long offset = (long) (prefix / total * FixedAngle.TURN);
+            // Every section must be at least one unit wide, an empty extent would wrap to the whole circle.
+            offset = Math.min(Math.max(offset, previousOffset + 1), FixedAngle.TURN - (count - position));
+            sectionOffsets[position] = (int) offset;
+            previousOffset = offset;
+            prefix += weights[position];
+        }
+
+        final long firstSectionSize = count > 1 ? sectionOffsets[1] & 0xFFFFFFFFL : FixedAngle.TURN;
+        final int origin = FixedAngle.fromDegrees(startingPoint) - (int) (firstSectionSize >>> 1);
+        for (int position = 0; position < count; position++) {
+            final long from = sectionOffsets[position] & 0xFFFFFFFFL;
+            final long to = position + 1 < count ? sectionOffsets[position + 1] & 0xFFFFFFFFL : FixedAngle.TURN;
+            sectionStart[position] = origin + (int) from;
+            sectionExtent[position] = (int) (to - from - 1);
+
+            final float actualDegree = FixedAngle.toDegrees(origin + (int) ((from + to) >>> 1));
+            final double rad = Math.toRadians(actualDegree);
+            degrees[position] = actualDegree;
+            offsetX[position] = (float) (radiusFromCenter * Math.cos(rad));
+            offsetY[position] = (float) (radiusFromCenter * Math.sin(rad));
+        }
+    }
+
+    /**
+     * Find the position of the marker whose section contains an angle. This takes constant time for evenly
+     * spaced markers and logarithmic time for weighted markers.
+     *
+     * @param angle Angle to look up, as a {@link FixedAngle}.
+     * @return Position of the marker. The layout must have at least one marker.
+     */
+    int findSection(final int angle) {
+        if (sectionOffsets == null) {
+            return sectionIndexOf(angle, FixedAngle.fromDegrees(startingPoint), count);
+        }
+        // Binary search for the last section starting at or before the angle, comparing unsigned.
+        final int offset = (angle - sectionStart[0]) ^ Integer.MIN_VALUE;
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if ((sectionOffsets[mid] ^ Integer.MIN_VALUE) <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the start of the section of one of <code>count</code> evenly spaced markers. Each section is centered on
+     * its marker, and the sections of all <code>count</code> markers tile the circle exactly.
+     *
+     * @param start    Angle of the first marker, as a {@link FixedAngle}.
+     * @param position Position of the marker, counted clockwise from the first marker.
+     * @param count    Number of markers.
+     * @return Start of the section, as a {@link FixedAngle}.
+     */
+    static int sectionStart(final int start, final int position, final int count) {
+        return start - FixedAngle.fraction(1, 2L * count) + FixedAngle.fraction(position, count);
+    }
+
+    /**
+     * Get the inclusive extent of the section of one of <code>count</code> evenly spaced markers.
+     *
+     * @param position Position of the marker, counted clockwise from the first marker.
+     * @param count    Number of markers.
+     * @return Extent of the section, as a {@link FixedAngle}. This wraps to -1, the whole circle, for a single marker.
+     */
+    static int sectionExtent(final int position, final int count) {
+        return FixedAngle.fraction(position + 1L, count) - FixedAngle.fraction(position, count) - 1;
+    }
+
+    /**
+     * Find the position of the evenly spaced marker whose section contains an angle. This is the inverse of
+     * {@link #sectionStart(int, int, int)} and takes constant time.
+     *
+     * @param angle Angle to look up, as a {@link FixedAngle}.
+     * @param start Angle of the first marker, as a {@link FixedAngle}.
+     * @param count Number of markers, must be positive.
+     * @return Position of the marker, counted clockwise from the first marker.
+     */
+    static int sectionIndexOf(final int angle, final int start, final int count) {
+        final long offset = (angle - sectionStart(start, 0, count)) & 0xFFFFFFFFL;
+        int position = (int) ((offset * count) >>> 32);
+        // Section boundaries are rounded down, so the angle may sit at the very start of the next section.
+        if (position + 1 < count && offset >= (FixedAngle.fraction(position + 1L, count) & 0xFFFFFFFFL)) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Check if this layout was computed from the given inputs.
+     *
+     * @param count            Number of markers.
+     * @param startingPoint    Degree of the first marker.
+     * @param radiusFromCenter Distance from the center of the circle to the center of each marker.
+     * @param weights          Weight of each marker, or null for evenly spaced markers.
+     * @return True if computing a layout from the inputs would produce this layout.
+     */
+    boolean matches(final int count, final float startingPoint, final float radiusFromCenter, final float[] weights) {
+        return this.count == count
+                && Float.compare(this.startingPoint, startingPoint) == 0
+                && Float.compare(this.radiusFromCenter, radiusFromCenter) == 0
+                && Arrays.equals(this.weights, weights);
+    }
+
+    /**
+     * Write this layout to a parcel, as primitives only.
+     *
+     * @param dest Parcel to write to.
+     * @see #createFromParcel(Parcel)
+     */
+    void writeToParcel(final Parcel dest) {
+        dest.writeInt(count);
+        dest.writeFloat(startingPoint);
+        dest.writeFloat(radiusFromCenter);
+        dest.writeFloatArray(weights);
+        dest.writeFloatArray(degrees);
+        dest.writeFloatArray(offsetX);
+        dest.writeFloatArray(offsetY);
+        dest.writeIntArray(sectionStart);
+        dest.writeIntArray(sectionExtent);
+    }
+
+    /**
+     * Read a layout written by {@link #writeToParcel(Parcel)}.
+     *
+     * @param source Parcel to read from.
+     * @return The layout.
+     */
+    static MarkerLayout createFromParcel(final Parcel source) {
+        return new MarkerLayout(source);
+    }
+
+    private static final class Key {
+        final int count;
+        final float startingPoint;
+        final float radiusFromCenter;
+
+        Key(final int count, final float startingPoint, final float radiusFromCenter) {
+            this.count = count;
+            this.startingPoint = startingPoint;
+            this.radiusFromCenter = radiusFromCenter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+
+            if (count != key.count) return false;
+            if (Float.compare(key.startingPoint, startingPoint) != 0) return false;
+            return Float.compare(key.radiusFromCenter, radiusFromCenter) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = count;
+            result = 31 * result + (startingPoint != +0.0f ? Float.floatToIntBits(startingPoint) : 0);
+            result = 31 * result + (radiusFromCenter != +0.0f ? Float.floatToIntBits(radiusFromCenter) : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.sababado.circularview;
+
+import android.graphics.Paint;
+import android.util.LruCache;
+
+/**
+ * Immutable styling shared by {@link CircularViewObject}s: fill color, radius padding, whether the drawable fits
+ * inside the circle or is cropped to it, and paint flags.
+ * <p>
+ * Styles are interned. {@link #obtain(int, float, boolean, int)} and the <code>with*</code> methods return the
+ * same instance for the same values, and each instance owns a single {@link Paint}. Thousands of markers that use a
+ * handful of colors therefore only ever create a handful of paints.
+ * </p>
+ */
+public final class MarkerStyle {
+    private static final int INTERN_CACHE_SIZE = 256;
+    private static final LruCache<MarkerStyle, MarkerStyle> sInterned = new LruCache<MarkerStyle, MarkerStyle>(INTERN_CACHE_SIZE);
+
+    /**
+     * Style used by markers until they are given another one: no fill color, 5 pixels of radius padding,
+     * drawables are not fit to the circle, and the paint is anti-aliased.
+     */
+    public static final MarkerStyle DEFAULT = obtain(CircularViewObject.NO_COLOR, 5f, false, Paint.ANTI_ALIAS_FLAG);
+
+    private final int fillColor;
+    private final float radiusPadding;
+    private final boolean fitToCircle;
+    private final boolean cropToCircle;
+    private final int paintFlags;
+    private volatile Paint paint;
+
+    private MarkerStyle(final int fillColor, final float radiusPadding, final boolean fitToCircle, final boolean cropToCircle, final int paintFlags) {
+        this.fillColor = fillColor;
+        this.radiusPadding = radiusPadding;
+        this.fitToCircle = fitToCircle;
+        this.cropToCircle = cropToCircle;
+        this.paintFlags = paintFlags;
+    }
+
+    /**
+     * Get the shared style with the given values.
+     *
+     * @param fillColor     Color to fill the circle with, or {@link CircularViewObject#NO_COLOR}.
+     * @param radiusPadding Padding between the edge of the circle and the drawable.
+     * @param fitToCircle   True if the drawable should fit inside of the circle.
+     * @param paintFlags    Flags for the fill paint, for example {@link Paint#ANTI_ALIAS_FLAG}.
+     * @return The shared style.
+     */
+    public static MarkerStyle obtain(final int fillColor, final float radiusPadding, final boolean fitToCircle, final int paintFlags) {
+        return obtain(fillColor, radiusPadding, fitToCircle, false, paintFlags);
+    }
+
+    /**
+     * Get the shared style with the given values.
+     *
+     * @param fillColor     Color to fill the circle with, or {@link CircularViewObject#NO_COLOR}.
+     * @param radiusPadding Padding between the edge of the circle and the drawable.
+     * @param fitToCircle   True if the drawable should fit inside of the circle.
+     * @param cropToCircle  True if a bitmap drawable should be cropped to the circle.
+     * @param paintFlags    Flags for the fill paint, for example {@link Paint#ANTI_ALIAS_FLAG}.
+     * @return The shared style.
+     */
+    public static MarkerStyle obtain(final int fillColor, final float radiusPadding, final boolean fitToCircle, final boolean cropToCircle, final int paintFlags) {
+        final MarkerStyle style = new MarkerStyle(fillColor, radiusPadding, fitToCircle, cropToCircle, paintFlags);
+        synchronized (sInterned) {
+            final MarkerStyle interned = sInterned.get(style);
+            if (interned != null) {
+                return interned;
+            }
+            sInterned.put(style, style);
+        }
+        return style;
+    }
+
+    /**
+     * Get the shared style with these values and a different fill color.
+     *
+     * @param fillColor Color to fill the circle with, or {@link CircularViewObject#NO_COLOR}.
+     * @return The shared style.
+     */
+    public MarkerStyle withFillColor(final int fillColor) {
+        return fillColor == this.fillColor ? this : obtain(fillColor, radiusPadding, fitToCircle, cropToCircle, paintFlags);
+    }
+
+    /**
+     * Get the shared style with these values and a different radius padding.
+     *
+     * @param radiusPadding Padding between the edge of the circle and the drawable.
+     * @return The shared style.
+     */
+    public MarkerStyle withRadiusPadding(final float radiusPadding) {
+        return Float.compare(radiusPadding, this.radiusPadding) == 0 ? this : obtain(fillColor, radiusPadding, fitToCircle, cropToCircle, paintFlags);
+    }
+
+    /**
+     * Get the shared style with these values and a different fit to circle flag.
+     *
+     * @param fitToCircle True if the drawable should fit inside of the circle.
+     * @return The shared style.
+     */
+    public MarkerStyle withFitToCircle(final boolean fitToCircle) {
+        return fitToCircle == this.fitToCircle ? this : obtain(fillColor, radiusPadding, fitToCircle, cropToCircle, paintFlags);
+    }
+
+    /**
+     * Get the shared style with these values and a different crop to circle flag.
+     *
+     * @param cropToCircle True if a bitmap drawable should be cropped to the circle.
+     * @return The shared style.
+     */
+    public MarkerStyle withCropToCircle(final boolean cropToCircle) {
+        return cropToCircle == this.cropToCircle ? this : obtain(fillColor, radiusPadding, fitToCircle, cropToCircle, paintFlags);
+    }
+
+    /**
+     * Get the shared style with these values and different paint flags.
+     *
+     * @param paintFlags Flags for the fill paint.
+     * @return The shared style.
+     */
+    public MarkerStyle withPaintFlags(final int paintFlags) {
+        return paintFlags == this.paintFlags ? this : obtain(fillColor, radiusPadding, fitToCircle, cropToCircle, paintFlags);
+    }
+
+    /**
+     * Get the color the circle is filled with.
+     *
+     * @return The fill color, or {@link CircularViewObject#NO_COLOR}.
+     */
+    public int getFillColor() {
+        return fillColor;
+    }
+
+    /**
+     * Get the padding between the edge of the circle and the drawable.
+     *
+     * @return The radius padding.
+     */
+    public float getRadiusPadding() {
+        return radiusPadding;
+    }
+
+    /**
+     * Check if the drawable fits inside of the circle.
+     *
+     * @return True if the drawable fits inside of the circle.
+     */
+    public boolean isFitToCircle() {
+        return fitToCircle;
+    }
+
+    /**
+     * Check if a bitmap drawable is cropped to the circle.
+     *
+     * @return True if a bitmap drawable is cropped to the circle.
+     */
+    public boolean isCropToCircle() {
+        return cropToCircle;
+    }
+
+    /**
+     * Get the flags of the fill paint.
+     *
+     * @return The paint flags.
+     */
+    public int getPaintFlags() {
+        return paintFlags;
+    }
+
+    /**
+     * Get the fill paint for this style. The paint is shared by every object using this style and must not be modified.
+     *
+     * @return The shared fill paint.
+     */
+    Paint getPaint() {
+        Paint p = paint;
+        if (p == null) {
+            synchronized (this) {
+                p = paint;
+                if (p == null) {
+                    p = new Paint(paintFlags);
+                    p.setStyle(Paint.Style.FILL);
+                    p.setColor(fillColor);
+                    paint = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        MarkerStyle style = (MarkerStyle) o;
+
+        if (fillColor != style.fillColor) return false;
+        if (Float.compare(style.radiusPadding, radiusPadding) != 0) return false;
+        if (fitToCircle != style.fitToCircle) return false;
+        if (cropToCircle != style.cropToCircle) return false;
+        return paintFlags == style.paintFlags;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = fillColor;
+        result = 31 * result + (radiusPadding != +0.0f ? Float.floatToIntBits(radiusPadding) : 0);
+        result = 31 * result + (fitToCircle ? 1 : 0);
+        result = 31 * result + (cropToCircle ? 1 : 0);
+        result = 31 * result + paintFlags;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MarkerStyle{" +
+                "fillColor=" + fillColor +
+                ", radiusPadding=" + radiusPadding +
+                ", fitToCircle=" + fitToCircle +
+                ", cropToCircle=" + cropToCircle +
+                ", paintFlags=" + paintFlags +
+                '}';
+    }
+}
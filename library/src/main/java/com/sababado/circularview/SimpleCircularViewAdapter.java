@@ -17,6 +17,8 @@ public abstract class SimpleCircularViewAdapter implements BaseCircularViewAdapt
     /**
      * Notifies the attached observers that the underlying data has been changed
      * and any View reflecting the data set should refresh itself.
+     * This may be called from any thread. A {@link CircularView} lays out once on its next frame
+     * no matter how many notifications arrive before then, and then reads the adapter on the UI thread.
      */
     public void notifyDataSetChanged() {
         mDataSetObservable.notifyChanged();
@@ -0,0 +1,104 @@
+package com.sababado.circularview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import java.util.ArrayList;
+
+/**
+ * Draws solid color markers, markers with a fill color and no drawable, in as few draw calls as possible.
+ * Markers are grouped by fill color, paint flags and radius, and every group is drawn with a single
+ * {@link Canvas#drawPoints(float[], int, int, Paint)} call using round caps as wide as the markers.
+ * <p>
+ * All arrays are kept between frames and only grow, so drawing a batch doesn't allocate once the dial has been
+ * drawn.
+ * </p>
+ */
+final class SolidMarkerBatch {
+    private final Paint mPaint = new Paint();
+    private int mGroupCount;
+    private int[] mColors = new int[4];
+    private int[] mPaintFlags = new int[4];
+    private float[] mRadii = new float[4];
+    private float[][] mPoints = new float[4][];
+    /**
+     * Number of floats used in each group's points, two per marker.
+     */
+    private int[] mPointCounts = new int[4];
+
+    /**
+     * Check if a marker can be drawn as part of a batch.
+     *
+     * @param marker Marker to check.
+     * @return True if the marker is visible, has a fill color, no drawable and no transform.
+     */
+    static boolean canBatch(final Marker marker) {
+        return marker.isSolid() && !marker.hasTransform() && marker.getRadius() > 0f;
+    }
+
+    /**
+     * Draw markers, all of which must satisfy {@link #canBatch(Marker)}.
+     *
+     * @param canvas  Canvas to draw on.
+     * @param markers Markers of the view.
+     * @param order   Indices into <code>markers</code>.
+     * @param start   First entry of <code>order</code> to draw.
+     * @param end     Entry of <code>order</code> to stop at, exclusive.
+     */
+    void draw(final Canvas canvas, final ArrayList<Marker> markers, final int[] order, final int start, final int end) {
+        mGroupCount = 0;
+        for (int i = start; i < end; i++) {
+            final Marker marker = markers.get(order[i]);
+            final MarkerStyle style = marker.getStyle();
+            final int group = obtainGroup(style.getFillColor(), style.getPaintFlags(), marker.getRadius(), end - start);
+            final int count = mPointCounts[group];
+            mPoints[group][count] = marker.getX();
+            mPoints[group][count + 1] = marker.getY();
+            mPointCounts[group] = count + 2;
+        }
+        for (int group = 0; group < mGroupCount; group++) {
+            mPaint.setFlags(mPaintFlags[group]);
+            mPaint.setStyle(Paint.Style.STROKE);
+            mPaint.setStrokeCap(Paint.Cap.ROUND);
+            mPaint.setColor(mColors[group]);
+            mPaint.setStrokeWidth(mRadii[group] * 2f);
+            canvas.drawPoints(mPoints[group], 0, mPointCounts[group], mPaint);
+        }
+    }
+
+    private int obtainGroup(final int color, final int paintFlags, final float radius, final int maxMarkers) {
+        for (int group = 0; group < mGroupCount; group++) {
+            if (mColors[group] == color && mPaintFlags[group] == paintFlags && mRadii[group] == radius) {
+                return group;
+            }
+        }
+        final int group = mGroupCount++;
+        if (group == mColors.length) {
+            final int capacity = group * 2;
+            mColors = copyOf(mColors, capacity);
+            mPaintFlags = copyOf(mPaintFlags, capacity);
+            mPointCounts = copyOf(mPointCounts, capacity);
+            final float[] radii = new float[capacity];
+            System.arraycopy(mRadii, 0, radii, 0, group);
+            mRadii = radii;
+            final float[][] points = new float[capacity][];
+            System.arraycopy(mPoints, 0, points, 0, group);
+            mPoints = points;
+        }
+        mColors[group] = color;
+        mPaintFlags[group] = paintFlags;
+        mRadii[group] = radius;
+        mPointCounts[group] = 0;
+        // Size for the whole run so the group never has to grow while it is filled.
+        if (mPoints[group] == null || mPoints[group].length < maxMarkers * 2) {
+            mPoints[group] = new float[maxMarkers * 2];
+        }
+        return group;
+    }
+
+    private static int[] copyOf(final int[] array, final int capacity) {
+        final int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+}
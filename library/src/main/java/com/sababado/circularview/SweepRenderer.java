@@ -0,0 +1,194 @@
+package com.sababado.circularview;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.SweepGradient;
+
+/**
+ * Draws the sweep that follows an animating highlighted degree or {@link HighlightCursor}.
+ * <p>
+ * A renderer always draws the sweep pointing at 0 degrees (the right of the view) and the view rotates the
+ * canvas to the degree being animated, so nothing has to be computed per frame. Paints, paths and shaders should
+ * be created in {@link #onConfigure(float, float, float)}, which is only called when the size of the view or
+ * the renderer's configuration changes.
+ * </p>
+ *
+ * @see CircularView#setSweepRenderer(SweepRenderer)
+ */
+public abstract class SweepRenderer {
+    private float mCenterX = Float.NaN;
+    private float mCenterY = Float.NaN;
+    private float mRadius = Float.NaN;
+    private boolean mConfigured;
+
+    /**
+     * Draw the sweep at a degree, configuring the renderer first if the geometry or configuration changed.
+     */
+    final void draw(final Canvas canvas, final float degree, final float centerX, final float centerY, final float radius) {
+        if (!mConfigured || centerX != mCenterX || centerY != mCenterY || radius != mRadius) {
+            mCenterX = centerX;
+            mCenterY = centerY;
+            mRadius = radius;
+            mConfigured = true;
+            onConfigure(centerX, centerY, radius);
+        }
+        final int saveCount = canvas.save();
+        canvas.rotate(degree, centerX, centerY);
+        onDraw(canvas, centerX, centerY, radius);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * Call when something that {@link #onConfigure(float, float, float)} depends on has changed, so that it is
+     * called again before the next draw.
+     */
+    protected final void invalidateConfiguration() {
+        mConfigured = false;
+    }
+
+    /**
+     * Create anything that depends on the size of the view. Called before the first draw, and again whenever the
+     * size or the configuration changes.
+     *
+     * @param centerX X coordinate of the center of the view.
+     * @param centerY Y coordinate of the center of the view.
+     * @param radius  Distance from the center to the center of the markers.
+     */
+    protected void onConfigure(final float centerX, final float centerY, final float radius) {
+    }
+
+    /**
+     * Draw the sweep pointing at 0 degrees. The canvas is already rotated to the degree being animated.
+     *
+     * @param canvas  Canvas to draw on.
+     * @param centerX X coordinate of the center of the view.
+     * @param centerY Y coordinate of the center of the view.
+     * @param radius  Distance from the center to the center of the markers.
+     */
+    protected abstract void onDraw(Canvas canvas, float centerX, float centerY, float radius);
+
+    /**
+     * A straight line from the center to the markers. This is the default.
+     */
+    public static class Line extends SweepRenderer {
+        private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        /**
+         * Create a hairline in the given color.
+         *
+         * @param color Color of the line.
+         */
+        public Line(final int color) {
+            this(color, 0f);
+        }
+
+        /**
+         * Create a line.
+         *
+         * @param color       Color of the line.
+         * @param strokeWidth Width of the line in pixels, 0 for a hairline.
+         */
+        public Line(final int color, final float strokeWidth) {
+            mPaint.setColor(color);
+            mPaint.setStrokeWidth(strokeWidth);
+            mPaint.setStrokeCap(Paint.Cap.ROUND);
+        }
+
+        @Override
+        protected void onDraw(final Canvas canvas, final float centerX, final float centerY, final float radius) {
+            canvas.drawLine(centerX, centerY, centerX + radius, centerY, mPaint);
+        }
+    }
+
+    /**
+     * A filled wedge that trails behind the degree being animated.
+     */
+    public static class Arc extends SweepRenderer {
+        private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final RectF mOval = new RectF();
+        private final float mSweepAngle;
+
+        /**
+         * Create an arc.
+         *
+         * @param color      Color of the wedge, including alpha.
+         * @param sweepAngle Size of the wedge in degrees.
+         */
+        public Arc(final int color, final float sweepAngle) {
+            mPaint.setColor(color);
+            mPaint.setStyle(Paint.Style.FILL);
+            mSweepAngle = sweepAngle;
+        }
+
+        @Override
+        protected void onConfigure(final float centerX, final float centerY, final float radius) {
+            mOval.set(centerX - radius, centerY - radius, centerX + radius, centerY + radius);
+        }
+
+        @Override
+        protected void onDraw(final Canvas canvas, final float centerX, final float centerY, final float radius) {
+            canvas.drawArc(mOval, -mSweepAngle, mSweepAngle, true, mPaint);
+        }
+    }
+
+    /**
+     * A line with a trail that fades out behind it, like a radar or a comet's tail.
+     */
+    public static class GradientTrail extends SweepRenderer {
+        private final Paint mTrailPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint mLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final int mColor;
+        private final float mTrailAngle;
+
+        /**
+         * Create a gradient trail.
+         *
+         * @param color      Color at the head of the trail. The trail fades from this color to transparent.
+         * @param trailAngle Length of the trail in degrees, up to 360.
+         */
+        public GradientTrail(final int color, final float trailAngle) {
+            mColor = color;
+            mTrailAngle = Math.max(0f, Math.min(360f, trailAngle));
+            mTrailPaint.setStyle(Paint.Style.FILL);
+            mLinePaint.setColor(color);
+        }
+
+        @Override
+        protected void onConfigure(final float centerX, final float centerY, final float radius) {
+            // The gradient starts at 0 degrees and goes clockwise, so the trail is the end of the gradient
+            // and the head is at a full turn, which is 0 degrees again.
+            final int transparent = mColor & 0x00FFFFFF;
+            mTrailPaint.setShader(new SweepGradient(centerX, centerY,
+                    new int[]{transparent, transparent, mColor},
+                    new float[]{0f, 1f - mTrailAngle / 360f, 1f}));
+        }
+
+        @Override
+        protected void onDraw(final Canvas canvas, final float centerX, final float centerY, final float radius) {
+            canvas.drawCircle(centerX, centerY, radius, mTrailPaint);
+            canvas.drawLine(centerX, centerY, centerX + radius, centerY, mLinePaint);
+        }
+    }
+
+    /**
+     * Create one of the built in renderers.
+     *
+     * @param style One of {@link CircularView#SWEEP_STYLE_LINE}, {@link CircularView#SWEEP_STYLE_ARC} or
+     *              {@link CircularView#SWEEP_STYLE_GRADIENT_TRAIL}.
+     * @param color Color of the sweep.
+     * @return The renderer.
+     */
+    static SweepRenderer create(final int style, final int color) {
+        switch (style) {
+            case CircularView.SWEEP_STYLE_ARC:
+                // Same hue, translucent so the markers under it stay visible.
+                return new Arc((color & 0x00FFFFFF) | (Color.alpha(color) / 3 << 24), 30f);
+            case CircularView.SWEEP_STYLE_GRADIENT_TRAIL:
+                return new GradientTrail(color, 90f);
+            default:
+                return new Line(color);
+        }
+    }
+}
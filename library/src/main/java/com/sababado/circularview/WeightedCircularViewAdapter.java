@@ -0,0 +1,21 @@
+package com.sababado.circularview;
+
+/**
+ * An adapter that sizes each marker's section of the circle by a weight, like the slices of a radial chart.
+ * A marker whose weight is twice another's gets a section twice as wide. Markers sit at the middle of their
+ * section, and the first marker's section is centered on the marker starting point.
+ * <p>
+ * Weights are read on the UI thread every time the markers are laid out. They are ignored in carousel mode,
+ * where every slot is the same size.
+ * </p>
+ */
+public interface WeightedCircularViewAdapter extends BaseCircularViewAdapter {
+    /**
+     * Get the weight of the marker at a given position. The position will be between 0 and the value returned by
+     * {@link #getCount()}.
+     *
+     * @param position Position of the marker.
+     * @return Weight of the marker's section. Must be positive and finite.
+     */
+    public float getWeight(int position);
+}
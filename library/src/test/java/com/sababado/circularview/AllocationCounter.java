@@ -0,0 +1,155 @@
+package com.sababado.circularview;
+
+import com.google.monitoring.runtime.instrumentation.AllocationRecorder;
+import com.google.monitoring.runtime.instrumentation.Sampler;
+
+import org.junit.runners.model.InitializationError;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+
+import java.util.ArrayList;
+
+/**
+ * Counts the objects library code allocates on the current thread, using the java-allocation-instrumenter agent
+ * the unit tests run with.
+ * <p>
+ * An allocation is counted when the code that made it is in the library's package, unless it was made while
+ * loading a class. Allocations made inside framework classes are not counted, because Robolectric replaces those with shadows that allocate differently
+ * than a device does. Tests using a counter must run with {@link TestRunner}.
+ * </p>
+ */
+final class AllocationCounter implements Sampler {
+    private static final String LIBRARY_PACKAGE = "com.sababado.circularview.";
+    private static final String AGENT_PACKAGE = "com.google.monitoring.";
+    private static final int MAX_RECORDED = 20;
+
+    /**
+     * Allocated while probing so the allocation can't be optimized away.
+     */
+    private static volatile Object probe;
+
+    private final Thread mThread = Thread.currentThread();
+    private final ArrayList<String> mRecorded = new ArrayList<String>();
+    private volatile boolean mProbing;
+    private volatile boolean mAgentActive;
+    private volatile boolean mCounting;
+    private int mCount;
+
+    /**
+     * Create a counter and start listening to the agent. Call {@link #close()} when done.
+     */
+    AllocationCounter() {
+        AllocationRecorder.addSampler(this);
+        mProbing = true;
+        probe = new Object();
+        mProbing = false;
+    }
+
+    /**
+     * Check if the agent is recording allocations. It isn't when the tests are run without Gradle.
+     *
+     * @return True if allocations are counted.
+     */
+    boolean isAgentActive() {
+        return mAgentActive;
+    }
+
+    /**
+     * Clear the count and start counting.
+     */
+    void start() {
+        mCount = 0;
+        mRecorded.clear();
+        mCounting = true;
+    }
+
+    /**
+     * Stop counting.
+     *
+     * @return Number of allocations counted since {@link #start()}.
+     */
+    int stop() {
+        mCounting = false;
+        return mCount;
+    }
+
+    /**
+     * Describe the first allocations counted, for a failure message.
+     *
+     * @return One line per allocation with its type and where it was made.
+     */
+    String describe() {
+        final StringBuilder description = new StringBuilder();
+        for (int i = 0, size = mRecorded.size(); i < size; i++) {
+            description.append('\n').append(mRecorded.get(i));
+        }
+        if (mCount > mRecorded.size()) {
+            description.append("\n... and ").append(mCount - mRecorded.size()).append(" more");
+        }
+        return description.toString();
+    }
+
+    /**
+     * Stop listening to the agent.
+     */
+    void close() {
+        mCounting = false;
+        AllocationRecorder.removeSampler(this);
+    }
+
+    @Override
+    public void sampleAllocation(final int count, final String desc, final Object newObj, final long size) {
+        if (Thread.currentThread() != mThread) {
+            return;
+        }
+        if (mProbing) {
+            mAgentActive = true;
+            return;
+        }
+        if (!mCounting) {
+            return;
+        }
+        // The agent doesn't record allocations made in here, so walking the stack is safe.
+        final StackTraceElement[] stack = new Throwable().getStackTrace();
+        for (final StackTraceElement element : stack) {
+            final String methodName = element.getMethodName();
+            if (methodName.equals("loadClass") || methodName.equals("<clinit>")) {
+                // Loading a class the first time it is used isn't a steady state allocation.
+                return;
+            }
+        }
+        for (final StackTraceElement element : stack) {
+            final String className = element.getClassName();
+            if (className.startsWith(AGENT_PACKAGE) || className.startsWith("java.") || className.startsWith("jdk.")
+                    || className.startsWith("sun.") || className.equals(AllocationCounter.class.getName())) {
+                continue;
+            }
+            if (className.startsWith(LIBRARY_PACKAGE)) {
+                mCount++;
+                if (mRecorded.size() < MAX_RECORDED) {
+                    mRecorded.add(desc + (count >= 0 ? "[" + count + "]" : "") + " at " + element);
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * Runs tests with the agent's recorder shared between the test and Robolectric's class loader. Otherwise
+     * Robolectric loads its own copy of the recorder, which the agent never reports to.
+     */
+    public static class TestRunner extends RobolectricTestRunner {
+        public TestRunner(final Class<?> testClass) throws InitializationError {
+            super(testClass);
+        }
+
+        @Override
+        public InstrumentationConfiguration createClassLoaderConfig(final Config config) {
+            return InstrumentationConfiguration.newBuilder()
+                    .withConfig(config)
+                    .doNotAcquirePackage(AGENT_PACKAGE)
+                    .build();
+        }
+    }
+}
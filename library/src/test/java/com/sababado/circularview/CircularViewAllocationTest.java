@@ -0,0 +1,95 @@
+package com.sababado.circularview;
+
+import android.graphics.Canvas;
+import android.view.MotionEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that drawing, touching and highlighting don't allocate once the view has warmed up, so the view never
+ * causes garbage collection pauses while it is being used.
+ */
+@RunWith(AllocationCounter.TestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CircularViewAllocationTest {
+    private static final int MARKER_COUNT = 100;
+    private static final int WARM_UP_ITERATIONS = 20;
+    private static final int ITERATIONS = 100;
+
+    private AllocationCounter mCounter;
+    private CircularView mView;
+    private Canvas mCanvas;
+    private MotionEvent mDown;
+    private MotionEvent mUp;
+
+    @Before
+    public void setUp() {
+        mCounter = new AllocationCounter();
+        assumeTrue("Run with the allocation agent, see library/build.gradle", mCounter.isAgentActive());
+        mView = TestCircularViews.layout(TestCircularViews.simpleAdapter(MARKER_COUNT));
+        mView.setEventStream(new CircularViewEventStream(16));
+        mCanvas = TestCircularViews.canvas();
+        mDown = TestCircularViews.centerTouch(MotionEvent.ACTION_DOWN);
+        mUp = TestCircularViews.centerTouch(MotionEvent.ACTION_UP);
+    }
+
+    @After
+    public void tearDown() {
+        mCounter.close();
+    }
+
+    @Test
+    public void drawDoesNotAllocate() {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            mView.onDraw(mCanvas);
+        }
+        mCounter.start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mView.onDraw(mCanvas);
+        }
+        assertEquals("onDraw allocated:" + mCounter.describe(), 0, mCounter.stop());
+    }
+
+    @Test
+    public void touchDoesNotAllocate() {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            mView.onTouchEvent(mDown);
+            mView.onTouchEvent(mUp);
+        }
+        mCounter.start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mView.onTouchEvent(mDown);
+            mView.onTouchEvent(mUp);
+        }
+        assertEquals("onTouchEvent allocated:" + mCounter.describe(), 0, mCounter.stop());
+    }
+
+    @Test
+    public void highlightDoesNotAllocate() {
+        // Highlight every marker once, and drain the events published while doing so, before counting.
+        for (int i = 0; i < MARKER_COUNT; i++) {
+            mView.setHighlightedDegree(i * 360f / MARKER_COUNT);
+            mView.getEventStream().drain(IGNORE_EVENTS);
+        }
+        mCounter.start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            // Step by a prime number of degrees so every call moves to a different marker.
+            mView.setHighlightedDegree(i * 37 % 360);
+            mView.getEventStream().drain(IGNORE_EVENTS);
+        }
+        assertEquals("setHighlightedDegree allocated:" + mCounter.describe(), 0, mCounter.stop());
+    }
+
+    private static final CircularViewEventStream.EventHandler IGNORE_EVENTS = new CircularViewEventStream.EventHandler() {
+        @Override
+        public void onEvent(final int type, final int position, final float degree, final long time) {
+        }
+    };
+}
@@ -0,0 +1,165 @@
+package com.sababado.circularview;
+
+import android.graphics.Canvas;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Times how {@link CircularView}'s measure, layout, draw, touch and highlight paths scale with the number of
+ * markers, for both a {@link SimpleCircularViewAdapter} and a {@link CircularViewCursorAdapter}.
+ * <p>
+ * Skipped unless run with <code>./gradlew :library:testDebugUnitTest -Pbenchmark</code>. Every adapter writes one
+ * CSV file to <code>library/build/benchmarks</code> with a row per marker count and operation, holding the median
+ * and 90th percentile time of one call and the bytes allocated per call. Robolectric runs the framework on the JVM,
+ * so the numbers are only meaningful compared to other runs on the same machine.
+ * </p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CircularViewBenchmark {
+    private static final int[] MARKER_COUNTS = {10, 100, 1000, 5000};
+    private static final int WARM_UP_ITERATIONS = 10;
+    private static final int ITERATIONS = 30;
+
+    private static final String HEADER = "adapter,markers,operation,iterations,median_ns,p90_ns,allocated_bytes_per_op";
+
+    private static final String[] OPERATION_NAMES = {"measure", "layout", "draw", "touch", "highlight"};
+
+    private interface Operation {
+        void run(CircularView view, int iteration);
+    }
+
+    private Operation[] mOperations;
+    private Canvas mCanvas;
+    private MotionEvent mDown;
+    private MotionEvent mUp;
+
+    @Before
+    public void setUp() {
+        assumeTrue("Run with -Pbenchmark to benchmark", Boolean.getBoolean("circularview.benchmark"));
+        mCanvas = TestCircularViews.canvas();
+        mDown = TestCircularViews.centerTouch(MotionEvent.ACTION_DOWN);
+        mUp = TestCircularViews.centerTouch(MotionEvent.ACTION_UP);
+        final int spec = View.MeasureSpec.makeMeasureSpec(TestCircularViews.VIEW_SIZE, View.MeasureSpec.EXACTLY);
+        mOperations = new Operation[]{
+                new Operation() {
+                    @Override
+                    public void run(final CircularView view, final int iteration) {
+                        view.onMeasure(spec, spec);
+                    }
+                },
+                new Operation() {
+                    @Override
+                    public void run(final CircularView view, final int iteration) {
+                        view.onLayout(true, 0, 0, TestCircularViews.VIEW_SIZE, TestCircularViews.VIEW_SIZE);
+                    }
+                },
+                new Operation() {
+                    @Override
+                    public void run(final CircularView view, final int iteration) {
+                        view.onDraw(mCanvas);
+                    }
+                },
+                new Operation() {
+                    @Override
+                    public void run(final CircularView view, final int iteration) {
+                        view.onTouchEvent(mDown);
+                        view.onTouchEvent(mUp);
+                    }
+                },
+                new Operation() {
+                    @Override
+                    public void run(final CircularView view, final int iteration) {
+                        // Step by a prime number of degrees so every call moves to a different marker.
+                        view.setHighlightedDegree(iteration * 37 % 360);
+                    }
+                }
+        };
+    }
+
+    @Test
+    public void simpleAdapter() throws IOException {
+        final StringBuilder csv = new StringBuilder(HEADER).append('\n');
+        for (final int markerCount : MARKER_COUNTS) {
+            benchmark(csv, "simple", markerCount, TestCircularViews.layout(TestCircularViews.simpleAdapter(markerCount)));
+        }
+        write("simple", csv);
+    }
+
+    @Test
+    public void cursorAdapter() throws IOException {
+        final StringBuilder csv = new StringBuilder(HEADER).append('\n');
+        for (final int markerCount : MARKER_COUNTS) {
+            benchmark(csv, "cursor", markerCount, TestCircularViews.layout(TestCircularViews.cursorAdapter(markerCount)));
+        }
+        write("cursor", csv);
+    }
+
+    private void benchmark(final StringBuilder csv, final String adapter, final int markerCount,
+                           final CircularView view) {
+        final long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < mOperations.length; i++) {
+            final Operation operation = mOperations[i];
+            for (int iteration = 0; iteration < WARM_UP_ITERATIONS; iteration++) {
+                operation.run(view, iteration);
+            }
+            final long startBytes = allocatedBytes();
+            for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                final long start = System.nanoTime();
+                operation.run(view, iteration);
+                nanos[iteration] = System.nanoTime() - start;
+            }
+            final long bytes = allocatedBytes();
+            Arrays.sort(nanos);
+            csv.append(adapter).append(',')
+                    .append(markerCount).append(',')
+                    .append(OPERATION_NAMES[i]).append(',')
+                    .append(ITERATIONS).append(',')
+                    .append(nanos[ITERATIONS / 2]).append(',')
+                    .append(nanos[ITERATIONS * 9 / 10]).append(',')
+                    .append(startBytes < 0 ? -1 : (bytes - startBytes) / ITERATIONS).append('\n');
+        }
+    }
+
+    /**
+     * Get the number of bytes the current thread has allocated, or -1 if the JVM can't tell.
+     * Includes allocations made by Robolectric's shadows of the framework classes.
+     */
+    private static long allocatedBytes() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void write(final String adapter, final CharSequence csv) throws IOException {
+        final File dir = new File(System.getProperty("circularview.benchmarkDir", "build/benchmarks"));
+        assertTrue("Can't create " + dir, dir.isDirectory() || dir.mkdirs());
+        final Writer writer = new FileWriter(new File(dir, "CircularViewBenchmark-" + adapter + ".csv"));
+        try {
+            writer.append(csv);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.sababado.circularview;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link CircularViewEventStream} hands out events in order, drops and counts them when full, and
+ * keeps working after its indices wrap around the ring.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CircularViewEventStreamTest {
+    @Test
+    public void drainsInPublishOrder() {
+        final CircularViewEventStream stream = new CircularViewEventStream(8);
+        assertTrue(stream.publish(CircularViewEventStream.EVENT_CLICK, 3, 90f));
+        assertTrue(stream.publish(CircularViewEventStream.EVENT_HIGHLIGHT_ENTER, 1, 45f));
+        assertTrue(stream.publish(CircularViewEventStream.EVENT_LONG_CLICK,
+                CircularViewEventStream.POSITION_CENTER, 0f));
+        assertEquals(3, stream.size());
+
+        final RecordingHandler handler = new RecordingHandler();
+        assertEquals(3, stream.drain(handler));
+        assertEquals(0, stream.size());
+        handler.assertEvent(0, CircularViewEventStream.EVENT_CLICK, 3, 90f);
+        handler.assertEvent(1, CircularViewEventStream.EVENT_HIGHLIGHT_ENTER, 1, 45f);
+        handler.assertEvent(2, CircularViewEventStream.EVENT_LONG_CLICK, CircularViewEventStream.POSITION_CENTER, 0f);
+        assertEquals(0, stream.drain(handler));
+    }
+
+    @Test
+    public void fullStreamDropsNewEvents() {
+        final CircularViewEventStream stream = new CircularViewEventStream(4);
+        final int published = 10;
+        for (int i = 0; i < published; i++) {
+            assertEquals(i < 4, stream.publish(CircularViewEventStream.EVENT_CLICK, i, 0f));
+        }
+        assertEquals(4, stream.size());
+
+        final RecordingHandler handler = new RecordingHandler();
+        final int received = stream.drain(handler);
+        assertEquals(4, received);
+        assertEquals(published, received + stream.getDroppedCount());
+        // The oldest events are kept.
+        for (int i = 0; i < received; i++) {
+            handler.assertEvent(i, CircularViewEventStream.EVENT_CLICK, i, 0f);
+        }
+    }
+
+    @Test
+    public void keepsOrderAfterWrappingAround() {
+        final CircularViewEventStream stream = new CircularViewEventStream(4);
+        final RecordingHandler handler = new RecordingHandler();
+        int published = 0;
+        // Batches of three don't line up with the ring, so every batch starts at a different index.
+        for (int batch = 0; batch < 50; batch++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(stream.publish(CircularViewEventStream.EVENT_HIGHLIGHT_EXIT, published, published));
+                published++;
+            }
+            assertEquals(3, stream.drain(handler));
+        }
+        assertEquals(published, handler.size());
+        for (int i = 0; i < published; i++) {
+            handler.assertEvent(i, CircularViewEventStream.EVENT_HIGHLIGHT_EXIT, i, i);
+        }
+        assertEquals(0, stream.getDroppedCount());
+    }
+
+    @Test
+    public void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(1, new CircularViewEventStream(1).getCapacity());
+        assertEquals(4, new CircularViewEventStream(3).getCapacity());
+        assertEquals(16, new CircularViewEventStream(16).getCapacity());
+        // Too large to create in a test, so only the rounding is checked.
+        assertEquals(1 << 30, CircularViewEventStream.roundUpCapacity(1 << 30));
+        assertEquals(1 << 30, CircularViewEventStream.roundUpCapacity((1 << 29) + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroCapacity() {
+        new CircularViewEventStream(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCapacityOverLimit() {
+        CircularViewEventStream.roundUpCapacity((1 << 30) + 1);
+    }
+
+    @Test
+    public void singleEventStreamHoldsOneEvent() {
+        final CircularViewEventStream stream = new CircularViewEventStream(1);
+        assertTrue(stream.publish(CircularViewEventStream.EVENT_CLICK, 0, 0f));
+        assertFalse(stream.publish(CircularViewEventStream.EVENT_CLICK, 1, 0f));
+        assertEquals(1, stream.getDroppedCount());
+        final RecordingHandler handler = new RecordingHandler();
+        assertEquals(1, stream.drain(handler));
+        handler.assertEvent(0, CircularViewEventStream.EVENT_CLICK, 0, 0f);
+        assertTrue(stream.publish(CircularViewEventStream.EVENT_CLICK, 2, 0f));
+    }
+
+    private static final class RecordingHandler implements CircularViewEventStream.EventHandler {
+        private final ArrayList<int[]> mEvents = new ArrayList<int[]>();
+        private final ArrayList<Float> mDegrees = new ArrayList<Float>();
+
+        @Override
+        public void onEvent(final int type, final int position, final float degree, final long time) {
+            mEvents.add(new int[]{type, position});
+            mDegrees.add(degree);
+        }
+
+        int size() {
+            return mEvents.size();
+        }
+
+        void assertEvent(final int index, final int type, final int position, final float degree) {
+            assertEquals("type of event " + index, type, mEvents.get(index)[0]);
+            assertEquals("position of event " + index, position, mEvents.get(index)[1]);
+            assertEquals("degree of event " + index, degree, mDegrees.get(index), 0f);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.sababado.circularview;
+
+import android.graphics.Color;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures how much heap every bound marker retains, so dials with thousands of markers keep fitting on low RAM
+ * devices.
+ * <p>
+ * The used heap is measured, after collecting garbage until it settles, before and after a view binds its markers.
+ * The difference per marker is written to <code>library/build/benchmarks/CircularViewHeapBenchmark.csv</code>,
+ * and the test fails if it grows past {@link #MAX_RETAINED_BYTES_PER_MARKER}. Robolectric adds a shadow to some
+ * framework objects, so a device retains somewhat less than reported here.
+ * </p>
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CircularViewHeapBenchmark {
+    private static final int MARKER_COUNT = 5000;
+    /**
+     * Agreed upper bound for the heap one marker retains, including its share of the view's per marker arrays.
+     * Raise it only together with a reason in the commit that does.
+     */
+    private static final long MAX_RETAINED_BYTES_PER_MARKER = 1024;
+    private static final int MAX_GC_ROUNDS = 20;
+
+    @Test
+    public void retainedBytesPerMarker() throws IOException {
+        // Bind once and throw the view away, so classes and caches are loaded before measuring.
+        TestCircularViews.layout(colorAdapter(MARKER_COUNT));
+
+        final CircularView view = TestCircularViews.layout(colorAdapter(0));
+        final long before = settledUsedHeap();
+        view.setAdapter(colorAdapter(MARKER_COUNT));
+        view.onLayout(true, 0, 0, TestCircularViews.VIEW_SIZE, TestCircularViews.VIEW_SIZE);
+        final long after = settledUsedHeap();
+        // Keep the view reachable until after the second measurement.
+        assertEquals(MARKER_COUNT, view.getAdapter().getCount());
+
+        final long bytesPerMarker = (after - before) / MARKER_COUNT;
+        write("markers,heap_before_bytes,heap_after_bytes,retained_bytes_per_marker\n"
+                + MARKER_COUNT + ',' + before + ',' + after + ',' + bytesPerMarker + '\n');
+        assertTrue("Every marker retains " + bytesPerMarker + " bytes, more than the agreed "
+                + MAX_RETAINED_BYTES_PER_MARKER, bytesPerMarker <= MAX_RETAINED_BYTES_PER_MARKER);
+    }
+
+    /**
+     * An adapter that only sets a fill color, so labels or drawables set up by the app aren't counted.
+     */
+    private static SimpleCircularViewAdapter colorAdapter(final int count) {
+        return new SimpleCircularViewAdapter() {
+            @Override
+            public int getCount() {
+                return count;
+            }
+
+            @Override
+            public void setupMarker(final int position, final Marker marker) {
+                marker.setCenterBackgroundColor(Color.BLUE);
+            }
+        };
+    }
+
+    /**
+     * Collect garbage until the used heap stops shrinking.
+     *
+     * @return Bytes of heap in use.
+     */
+    private static long settledUsedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int round = 0; round < MAX_GC_ROUNDS; round++) {
+            System.gc();
+            System.runFinalization();
+            final long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                return used;
+            }
+            used = current;
+        }
+        return used;
+    }
+
+    private static void write(final String csv) throws IOException {
+        final File dir = new File(System.getProperty("circularview.benchmarkDir", "build/benchmarks"));
+        assertTrue("Can't create " + dir, dir.isDirectory() || dir.mkdirs());
+        final Writer writer = new FileWriter(new File(dir, "CircularViewHeapBenchmark.csv"));
+        try {
+            writer.append(csv);
+        } finally {
+            writer.close();
+        }
+    }
+}
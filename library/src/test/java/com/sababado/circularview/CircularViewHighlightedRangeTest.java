@@ -0,0 +1,54 @@
+package com.sababado.circularview;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks which markers {@link CircularView#setHighlightedRange(float, float)} selects. The view has four markers,
+ * at 0, 90, 180 and 270 degrees, each owning the 90 degrees around it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CircularViewHighlightedRangeTest {
+    private CircularView mView;
+
+    @Before
+    public void setUp() {
+        mView = TestCircularViews.layout(TestCircularViews.simpleAdapter(4));
+    }
+
+    @Test
+    public void rangeInsideOneSection() {
+        mView.setHighlightedRange(10f, 40f);
+        assertArrayEquals(new int[]{0}, mView.getHighlightedRangePositions());
+    }
+
+    @Test
+    public void rangeAcrossTheTop() {
+        mView.setHighlightedRange(300f, 30f);
+        assertArrayEquals(new int[]{3, 0}, mView.getHighlightedRangePositions());
+    }
+
+    @Test
+    public void rangeEndingBeforeItsStartInTheSameSection() {
+        mView.setHighlightedRange(10f, 365f);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, mView.getHighlightedRangePositions());
+    }
+
+    @Test
+    public void rangeEndingInTheSectionBeforeItsStart() {
+        mView.setHighlightedRange(50f, 40f);
+        assertArrayEquals(new int[]{1, 2, 3, 0}, mView.getHighlightedRangePositions());
+    }
+
+    @Test
+    public void fullTurn() {
+        mView.setHighlightedRange(10f, 370f);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, mView.getHighlightedRangePositions());
+    }
+}
@@ -0,0 +1,154 @@
+package com.sababado.circularview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks which markers {@link CircularViewPainter} draws in batches with {@link SolidMarkerBatch}, and that
+ * markers which can't be batched, or which must be drawn on top, are drawn one at a time in the right order.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CircularViewPainterTest {
+    private static final float RADIUS = 10f;
+
+    private CircularViewPainter mPainter;
+    private CircularViewObject mCircle;
+    private RecordingCanvas mCanvas;
+    private ArrayList<Marker> mMarkers;
+
+    @Before
+    public void setUp() {
+        mPainter = new CircularViewPainter(new MarkerLabelCache(new TextPaint()));
+        // No fill color and no drawable, so the center circle draws nothing.
+        mCircle = new CircularViewObject(RuntimeEnvironment.application);
+        mCanvas = new RecordingCanvas();
+        mMarkers = new ArrayList<Marker>();
+    }
+
+    @Test
+    public void solidMarkersAreGroupedByColorFlagsAndRadius() {
+        addSolidMarker(Color.RED, RADIUS);
+        addSolidMarker(Color.BLUE, RADIUS);
+        addSolidMarker(Color.RED, RADIUS);
+        addSolidMarker(Color.RED, RADIUS * 2);
+        addSolidMarker(Color.RED, RADIUS).setStyle(MarkerStyle.DEFAULT.withFillColor(Color.RED).withPaintFlags(0));
+
+        mPainter.draw(mCanvas, mCircle, mMarkers, null, null, null, Color.BLACK);
+
+        assertEquals("points 2 " + Color.RED + " " + RADIUS * 2 + " " + Paint.ANTI_ALIAS_FLAG + "\n"
+                + "points 1 " + Color.BLUE + " " + RADIUS * 2 + " " + Paint.ANTI_ALIAS_FLAG + "\n"
+                + "points 1 " + Color.RED + " " + RADIUS * 4 + " " + Paint.ANTI_ALIAS_FLAG + "\n"
+                + "points 1 " + Color.RED + " " + RADIUS * 2 + " 0\n", mCanvas.getDraws());
+    }
+
+    @Test
+    public void drawablesCropsAndTransformsAreDrawnOneAtATime() {
+        addSolidMarker(Color.RED, RADIUS);
+        addSolidMarker(Color.RED, RADIUS);
+        final Marker drawable = addSolidMarker(Color.RED, RADIUS);
+        drawable.setSrc(Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888));
+        final Marker transformed = addSolidMarker(Color.RED, RADIUS);
+        transformed.setTranslationX(5f);
+        final Marker cropped = addSolidMarker(Color.RED, RADIUS);
+        cropped.setSrc(Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888));
+        cropped.setCropToCircle(true);
+        addSolidMarker(Color.RED, RADIUS);
+        addSolidMarker(Color.RED, RADIUS);
+
+        mPainter.draw(mCanvas, mCircle, mMarkers, null, null, null, Color.BLACK);
+
+        // The drawable and cropped markers fill their circle before drawing the bitmap over it.
+        assertEquals("points 2 " + Color.RED + " " + RADIUS * 2 + " " + Paint.ANTI_ALIAS_FLAG + "\n"
+                + "circle " + drawable.getX() + "\n"
+                + "circle " + transformed.getX() + "\n"
+                + "circle " + cropped.getX() + "\n"
+                + "circle " + cropped.getX() + "\n"
+                + "points 2 " + Color.RED + " " + RADIUS * 2 + " " + Paint.ANTI_ALIAS_FLAG + "\n",
+                mCanvas.getDraws());
+    }
+
+    @Test
+    public void topMarkerIsDrawnLastAndAlone() {
+        for (int i = 0; i < 5; i++) {
+            addSolidMarker(Color.RED, RADIUS);
+        }
+        final Marker top = mMarkers.get(2);
+
+        mPainter.draw(mCanvas, mCircle, mMarkers, top, null, null, Color.BLACK);
+
+        assertEquals("points 4 " + Color.RED + " " + RADIUS * 2 + " " + Paint.ANTI_ALIAS_FLAG + "\n"
+                + "circle " + top.getX() + "\n", mCanvas.getDraws());
+        final int[] drawOrder = mPainter.ensureDrawOrder(mMarkers, top);
+        assertEquals(5, mPainter.getDrawOrderSize());
+        assertEquals(2, drawOrder[4]);
+    }
+
+    @Test
+    public void highlightedMarkerIsDrawnLastAndAlone() {
+        final CircularView view = TestCircularViews.layout(TestCircularViews.simpleAdapter(12));
+        view.setDrawHighlightedMarkerOnTop(true);
+        view.setHighlightedDegree(95f);
+        final Marker highlighted = view.getHighlightedMarker();
+        assertNotNull(highlighted);
+
+        view.onDraw(mCanvas);
+
+        final String draws = mCanvas.getDraws();
+        assertEquals("circle " + highlighted.getX() + "\n",
+                draws.substring(draws.lastIndexOf('\n', draws.length() - 2) + 1));
+        // Twelve markers in four colors: three per color, and the highlighted one isn't in a batch.
+        assertEquals(11, mCanvas.getBatchedPoints());
+    }
+
+    private Marker addSolidMarker(final int color, final float radius) {
+        final Marker marker = new Marker(RuntimeEnvironment.application);
+        marker.init(mMarkers.size() * 50f + 25f, 100f, radius, 0f, 0, 0, null);
+        marker.setCenterBackgroundColor(color);
+        mMarkers.add(marker);
+        return marker;
+    }
+
+    /**
+     * Records the circles and points drawn on it, one line per draw call.
+     */
+    private static final class RecordingCanvas extends Canvas {
+        private final StringBuilder mDraws = new StringBuilder();
+        private int mBatchedPoints;
+
+        @Override
+        public void drawPoints(final float[] pts, final int offset, final int count, final Paint paint) {
+            mBatchedPoints += count / 2;
+            mDraws.append("points ").append(count / 2).append(' ').append(paint.getColor())
+                    .append(' ').append(paint.getStrokeWidth()).append(' ').append(paint.getFlags()).append('\n');
+        }
+
+        @Override
+        public void drawCircle(final float cx, final float cy, final float radius, final Paint paint) {
+            mDraws.append("circle ").append(cx).append('\n');
+        }
+
+        String getDraws() {
+            return mDraws.toString();
+        }
+
+        int getBatchedPoints() {
+            return mBatchedPoints;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.sababado.circularview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link MarkerBitmapAtlas} gives every marker it draws a cell of its own, also after the markers
+ * of earlier draws were replaced by more markers than the atlas has cells.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MarkerBitmapAtlasTest {
+    private static final int CELLS = 4;
+    private static final int MARKER_COUNT = CELLS * 3;
+
+    private MarkerBitmapAtlas mAtlas;
+    private Canvas mCanvas;
+    private ArrayList<Marker> mMarkers;
+    private int[] mOrder;
+
+    @Before
+    public void setUp() {
+        mAtlas = new MarkerBitmapAtlas();
+        mCanvas = TestCircularViews.canvas();
+        mMarkers = new ArrayList<Marker>(MARKER_COUNT);
+        mOrder = new int[MARKER_COUNT];
+        for (int i = 0; i < MARKER_COUNT; i++) {
+            final Marker marker = new Marker(RuntimeEnvironment.application);
+            marker.init(40f * (i + 1), 40f, 16f, 0f, 0, 0, null);
+            marker.setSrc(Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888));
+            assertTrue(MarkerBitmapAtlas.canPack(marker));
+            mMarkers.add(marker);
+            mOrder[i] = i;
+        }
+    }
+
+    @Test
+    public void replacedMarkersGetTheirOwnCells() {
+        // Every draw replaces the oldest marker with a new one, so after the first few draws every cell is taken
+        // by a marker that is no longer drawn.
+        for (int start = 0; start + CELLS <= MARKER_COUNT; start++) {
+            mAtlas.draw(mCanvas, mMarkers, mOrder, start, start + CELLS, CELLS);
+            assertEquals(CELLS, mAtlas.getSlotCapacity());
+            assertOwnCells(start, start + CELLS);
+        }
+    }
+
+    @Test
+    public void replacingEveryMarkerKeepsCellsApart() {
+        mAtlas.draw(mCanvas, mMarkers, mOrder, 0, CELLS, CELLS);
+        mAtlas.draw(mCanvas, mMarkers, mOrder, CELLS, 2 * CELLS, CELLS);
+        assertOwnCells(CELLS, 2 * CELLS);
+        mAtlas.draw(mCanvas, mMarkers, mOrder, CELLS / 2, CELLS / 2 + CELLS, CELLS);
+        assertOwnCells(CELLS / 2, CELLS / 2 + CELLS);
+    }
+
+    /**
+     * Assert that every marker in a range of the draw order has a cell, and no two share one.
+     */
+    private void assertOwnCells(final int start, final int end) {
+        final boolean[] taken = new boolean[mAtlas.getSlotCapacity()];
+        for (int i = start; i < end; i++) {
+            final int slot = mAtlas.getSlot(mMarkers.get(mOrder[i]));
+            assertTrue("Marker " + i + " has no cell", slot >= 0 && slot < taken.length);
+            assertFalse("Marker " + i + " shares cell " + slot, taken[slot]);
+            taken[slot] = true;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.sababado.circularview;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the sections of weighted and evenly spaced {@link MarkerLayout}s, and that
+ * {@link MarkerLayout#findSection(int)} agrees with a linear scan over those sections.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MarkerLayoutTest {
+    private static final float RADIUS = 100f;
+    private static final int RANDOM_ANGLES = 10000;
+
+    @Test
+    public void boundaryAnglesOfWeightedSections() {
+        final MarkerLayout layout = MarkerLayout.compute(4, 30f, RADIUS, new float[]{1f, 2f, 3f, 4f});
+        assertTiled(layout);
+        for (int position = 0; position < layout.count; position++) {
+            final int start = layout.sectionStart[position];
+            final int end = start + layout.sectionExtent[position];
+            assertEquals(position, layout.findSection(start));
+            assertEquals(position, layout.findSection(end));
+            assertEquals((position + layout.count - 1) % layout.count, layout.findSection(start - 1));
+            assertEquals((position + 1) % layout.count, layout.findSection(end + 1));
+        }
+        assertMatchesLinearScan(layout);
+    }
+
+    @Test
+    public void weightedSectionsWrapPast360() {
+        // The first section is a third of the circle centered on 350 degrees, from 290 across 0 to 50 degrees.
+        final MarkerLayout layout = MarkerLayout.compute(5, 350f, RADIUS, new float[]{3f, 1f, 1f, 1f, 3f});
+        assertTiled(layout);
+        assertEquals(0, layout.findSection(FixedAngle.fromDegrees(0f)));
+        assertEquals(0, layout.findSection(FixedAngle.fromDegrees(359.9f)));
+        assertEquals(0, layout.findSection(FixedAngle.fromDegrees(360.1f)));
+        assertEquals(4, layout.findSection(FixedAngle.fromDegrees(289.9f)));
+        assertEquals(0, layout.findSection(FixedAngle.fromDegrees(290.1f)));
+        assertEquals(0, layout.findSection(FixedAngle.fromDegrees(49.9f)));
+        assertEquals(1, layout.findSection(FixedAngle.fromDegrees(50.1f)));
+        assertMatchesLinearScan(layout);
+    }
+
+    @Test
+    public void firstWeightedMarkerIsOnTheStartingPoint() {
+        final float[] startingPoints = {0f, 90f, 270f, 359f};
+        for (final float startingPoint : startingPoints) {
+            final MarkerLayout layout = MarkerLayout.compute(3, startingPoint, RADIUS, new float[]{2f, 1f, 5f});
+            assertEquals(startingPoint, layout.degrees[0], 1e-3f);
+        }
+    }
+
+    @Test
+    public void tinyWeightsGetAtLeastOneUnit() {
+        final float[] weights = {1e-30f, 1f, 1e-30f, 1e-30f, 1f, 1e-30f};
+        final MarkerLayout layout = MarkerLayout.compute(weights.length, 0f, RADIUS, weights);
+        assertTiled(layout);
+        for (int position = 0; position < layout.count; position++) {
+            assertEquals(position, layout.findSection(layout.sectionStart[position]));
+        }
+        assertMatchesLinearScan(layout);
+    }
+
+    @Test
+    public void singleWeightedSectionCoversTheCircle() {
+        final MarkerLayout layout = MarkerLayout.compute(1, 45f, RADIUS, new float[]{1f});
+        assertEquals(-1, layout.sectionExtent[0]);
+        assertEquals(45f, layout.degrees[0], 1e-3f);
+        assertMatchesLinearScan(layout);
+    }
+
+    @Test
+    public void evenSectionsMatchLinearScan() {
+        for (int count = 1; count <= 13; count++) {
+            final MarkerLayout layout = MarkerLayout.compute(count, 355f, RADIUS, null);
+            assertTiled(layout);
+            for (int position = 0; position < count; position++) {
+                final int start = layout.sectionStart[position];
+                assertEquals(position, layout.findSection(start));
+                assertEquals(position, layout.findSection(start + layout.sectionExtent[position]));
+            }
+            assertMatchesLinearScan(layout);
+        }
+    }
+
+    /**
+     * Assert that every section is at least one unit wide and starts right after the previous one, so that the
+     * sections tile the circle exactly.
+     */
+    private static void assertTiled(final MarkerLayout layout) {
+        long total = 0;
+        for (int position = 0; position < layout.count; position++) {
+            final long size = (layout.sectionExtent[position] & 0xFFFFFFFFL) + 1;
+            total += size;
+            final int next = (position + 1) % layout.count;
+            assertEquals("Section " + next + " doesn't follow section " + position,
+                    layout.sectionStart[position] + (int) size, layout.sectionStart[next]);
+        }
+        assertEquals(FixedAngle.TURN, total);
+    }
+
+    /**
+     * Assert that random angles and the angles around every section boundary are found in the one section that
+     * contains them.
+     */
+    private static void assertMatchesLinearScan(final MarkerLayout layout) {
+        final Random random = new Random(layout.count);
+        for (int i = 0; i < RANDOM_ANGLES; i++) {
+            assertFound(layout, random.nextInt());
+        }
+        for (int position = 0; position < layout.count; position++) {
+            final int start = layout.sectionStart[position];
+            for (int delta = -2; delta <= 2; delta++) {
+                assertFound(layout, start + delta);
+            }
+        }
+    }
+
+    private static void assertFound(final MarkerLayout layout, final int angle) {
+        int expected = -1;
+        for (int position = 0; position < layout.count; position++) {
+            if (((angle - layout.sectionStart[position]) & 0xFFFFFFFFL)
+                    <= (layout.sectionExtent[position] & 0xFFFFFFFFL)) {
+                assertEquals("Sections overlap at " + angle, -1, expected);
+                expected = position;
+            }
+        }
+        assertTrue("No section contains " + angle, expected != -1);
+        assertEquals("Section of " + angle, expected, layout.findSection(angle));
+    }
+}
@@ -0,0 +1,104 @@
+package com.sababado.circularview;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Adapters and laid out views shared by the tests and benchmarks.
+ */
+final class TestCircularViews {
+    /**
+     * Width and height every view is laid out at, in pixels.
+     */
+    static final int VIEW_SIZE = 1080;
+
+    private static final int[] COLORS = {Color.RED, Color.GREEN, Color.BLUE, Color.YELLOW};
+
+    private TestCircularViews() {
+    }
+
+    /**
+     * Create an adapter with a number of labeled, colored markers.
+     *
+     * @param count Number of markers.
+     * @return The adapter.
+     */
+    static SimpleCircularViewAdapter simpleAdapter(final int count) {
+        return new SimpleCircularViewAdapter() {
+            @Override
+            public int getCount() {
+                return count;
+            }
+
+            @Override
+            public void setupMarker(final int position, final Marker marker) {
+                marker.setCenterBackgroundColor(COLORS[position % COLORS.length]);
+                marker.setLabel(String.valueOf(position));
+            }
+        };
+    }
+
+    /**
+     * Create a cursor adapter over a {@link MatrixCursor} with a number of rows, one marker per row.
+     *
+     * @param count Number of rows.
+     * @return The adapter.
+     */
+    static CircularViewCursorAdapter cursorAdapter(final int count) {
+        final MatrixCursor rows = new MatrixCursor(new String[]{"_id", "label", "color"}, count);
+        for (int i = 0; i < count; i++) {
+            rows.addRow(new Object[]{(long) i, String.valueOf(i), COLORS[i % COLORS.length]});
+        }
+        return new CircularViewCursorAdapter(rows, 0) {
+            @Override
+            public void setupMarker(final int position, final Marker marker, final Cursor cursor) {
+                marker.setCenterBackgroundColor(cursor.getInt(2));
+                marker.setLabel(cursor.getString(1));
+            }
+        };
+    }
+
+    /**
+     * Create a view showing an adapter, measured and laid out at {@link #VIEW_SIZE}.
+     *
+     * @param adapter Adapter to show.
+     * @return The view.
+     */
+    static CircularView layout(final BaseCircularViewAdapter adapter) {
+        final CircularView view = new CircularView(RuntimeEnvironment.application);
+        view.setAdapter(adapter);
+        final int spec = View.MeasureSpec.makeMeasureSpec(VIEW_SIZE, View.MeasureSpec.EXACTLY);
+        view.measure(spec, spec);
+        view.layout(0, 0, VIEW_SIZE, VIEW_SIZE);
+        return view;
+    }
+
+    /**
+     * Create a canvas the size of a view laid out by {@link #layout(BaseCircularViewAdapter)}.
+     *
+     * @return The canvas.
+     */
+    static Canvas canvas() {
+        return new Canvas(Bitmap.createBitmap(VIEW_SIZE, VIEW_SIZE, Bitmap.Config.ARGB_8888));
+    }
+
+    /**
+     * Create a touch event at the center of a view laid out by {@link #layout(BaseCircularViewAdapter)}.
+     * Every marker is hit tested before the center circle, so this is the slowest touch to handle.
+     *
+     * @param action Action of the event.
+     * @return The event.
+     */
+    static MotionEvent centerTouch(final int action) {
+        final long now = SystemClock.uptimeMillis();
+        return MotionEvent.obtain(now, now, action, VIEW_SIZE / 2f, VIEW_SIZE / 2f, 0);
+    }
+}